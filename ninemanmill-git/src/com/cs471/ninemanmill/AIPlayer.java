@@ -0,0 +1,599 @@
+package com.cs471.ninemanmill;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * An AI player, without any UI. It decides where to place, what to move and what to destroy for the board it is given, and does not change that board.
+ * The AI class runs one of these in the background for UINew, and anything else that plays games (like a tournament between AI levels) can call it directly.
+ * 
+ * Every level but random decides by searching, even when the move looks obvious, like making or blocking a mill: the search and its quiescence search judge those better than a fixed rule.
+ * The search itself is done by a Searcher, which is kept between turns.
+ * An AIPlayer makes one decision at a time.
+ * @author Sean Wright
+ * @author Michael Perez
+ *
+ */
+public class AIPlayer {
+	public static final int AI_RANDOM = 1;
+	public static final int AI_MEDIUM = 2;
+	public static final int AI_HARD = 3;
+	public static final int AI_IMPOSSIBLE = 4;
+	private final static int TT_SIZE_BITS = 20; //transposition table holds 2^20 positions (16MB)
+	private final static int PREDICT_DEPTH = 2; //depth of the search that predicts the opponent's reply, when the transposition table doesn't know it
+	private char playerID; //Identifies AI as player 1/player 2
+	private int difficulty;
+	private GameBoard gamestate; //board of the decision being made
+	private Team myTeam; //this player's team on gamestate
+	private Team enemyTeam; //the other team on gamestate
+	private long deadline; //time (in ms) the search has to be done by
+	private Searcher searcher; //alpha-beta search. Kept between turns, as its transposition table will often see the same positions again.
+	private Tablebase tablebase; //endgame tablebase, only used on impossible
+	private OpeningBook book; //opening book, used on hard and impossible
+	private int pendingCapture = Move.NO_POINT; //piece the last move search planned to take, if its move makes a mill
+	private int pendingOwn; //this player's pieces after that move, to check the destroy is for the board the search saw
+	private int pendingEnemy; //the other player's pieces after that move
+	private volatile Thread ponderThread; //searches on the opponent's time, null when not pondering
+	private volatile long ponderKey; //Zobrist key of the position after the predicted reply, 0 until it is predicted
+	private volatile int ponderResult = Move.NONE; //best turn found for that position, set when the pondering search is done
+	private long ponderStart; //time (in ms) pondering started
+	private boolean logging = true; //if this player prints what it is deciding, turned off by the command line tools
+	private Random r;
+	
+	/**
+	 * Makes a new AI player.
+	 * @param playerID GameBoard.PLAYER1 or GameBoard.PLAYER2
+	 * @param difficulty AI level, one of the AI_ constants. It changes the depth of the alpha-beta search and some other algorithms
+	 */
+	public AIPlayer(char playerID, int difficulty){
+		this(playerID, difficulty, NineManMill.AI_THREADS);
+	}
+	
+	/**
+	 * Makes a new AI player that searches with a set number of threads, instead of the number in the settings.
+	 * @param playerID GameBoard.PLAYER1 or GameBoard.PLAYER2
+	 * @param difficulty AI level, one of the AI_ constants
+	 * @param threads threads to search with
+	 */
+	public AIPlayer(char playerID, int difficulty, int threads){
+		this(playerID, difficulty, threads, TT_SIZE_BITS);
+	}
+	
+	/**
+	 * Makes a new AI player with a set number of threads and a set transposition table size, like when many of them are kept at once.
+	 * @param playerID GameBoard.PLAYER1 or GameBoard.PLAYER2
+	 * @param difficulty AI level, one of the AI_ constants
+	 * @param threads threads to search with
+	 * @param ttSizeBits the transposition table holds 2^ttSizeBits positions, 16 bytes each
+	 */
+	public AIPlayer(char playerID, int difficulty, int threads, int ttSizeBits){
+		this.playerID = playerID;
+		this.difficulty = difficulty;
+		r = new Random();
+		if (difficulty > AI_RANDOM){
+			searcher = new Searcher(playerID, difficulty, threads, ttSizeBits);
+		}
+		if (difficulty == AI_IMPOSSIBLE){
+			tablebase = Tablebase.getDefault();
+			searcher.setTablebase(tablebase);
+		}
+		if (difficulty >= AI_HARD){
+			book = OpeningBook.getDefault();
+		}
+	}
+	
+	/**
+	 * Turns this player's log of what it is deciding on or off. The log goes to System.out and is on by default.
+	 * The command line tools turn it off, as their many games would bury their own output in it.
+	 * @param logging true to print the log
+	 */
+	public void setLogging(boolean logging){
+		this.logging = logging;
+	}
+	
+	/**
+	 * Changes the opening book this player places from, like when a new book is being made and the old one shouldn't be repeated.
+	 * @param book book to use, or null to always search
+	 */
+	public void setOpeningBook(OpeningBook book){
+		this.book = book;
+	}
+	
+	/**
+	 * Sets the listener this player's searches report their progress to. The random AI doesn't search, so it never reports anything.
+	 * @param listener listener to tell, or null for none
+	 */
+	public void setProgressListener(Searcher.ProgressListener listener){
+		if (searcher != null){
+			searcher.setProgressListener(listener);
+		}
+	}
+	
+	/**
+	 * Makes the search that is running finish now, with the best move it has found so far. To throw the decision away instead, interrupt the thread making it.
+	 */
+	public void stopSearch(){
+		if (searcher != null){
+			searcher.stop();
+		}
+	}
+	
+	/**
+	 * Decides a whole turn: the placement or move, and the piece to destroy if it makes a mill.
+	 * @param gamestate board to play on, with this player to move. It is not changed.
+	 * @param deadline time (in ms) the search has to be done by
+	 * @return encoded move that can be passed to GameBoard.playMove(), or Move.NONE if this player can't move
+	 */
+	public int getNextTurn(GameBoard gamestate, long deadline){
+		int move;
+		Team team = (playerID == GameBoard.PLAYER1) ? gamestate.getTeam1() : gamestate.getTeam2();
+		if (team.getPiecesRemainingToPlace() > 0){
+			GamePiece place = getNextPlace(gamestate, deadline);
+			if (place == null) return Move.NONE;
+			move = Move.encode(Move.NO_POINT, BitBoard.index(place.getR(), place.getP()), Move.NO_POINT);
+		} else {
+			Move next = getNextMove(gamestate, deadline);
+			if (next == null) return Move.NONE;
+			move = next.encode();
+		}
+		
+		//make the move on a copy to see if it forms a mill. The piece to destroy is picked from the board as it is after the move.
+		GameBoard after = new GameBoard(gamestate);
+		Team other = (playerID == GameBoard.PLAYER1) ? after.getTeam2() : after.getTeam1();
+		if (after.makeMove(move) && other.getNumPieces() > 0){
+			GamePiece destroy = getNextDestroy(after, deadline);
+			move = Move.encode(Move.from(move), Move.to(move), BitBoard.index(destroy.getR(), destroy.getP()));
+		}
+		return move;
+	}
+	
+	/**
+	 * Gets the move this player wants to make on the board.
+	 * @param gamestate board to move on. It is not changed.
+	 * @param deadline time (in ms) the search has to be done by
+	 * @return the move, with its team set to this player's team on gamestate, or null if there are no moves
+	 */
+	public Move getNextMove(GameBoard gamestate, long deadline) {
+		startDecision(gamestate, deadline);
+		pendingCapture = Move.NO_POINT;
+		try {
+			//MOVE OPERATION
+			//Get the move we want.
+			switch(difficulty){
+			case AI_RANDOM:
+				//random
+				ArrayList<Move> allMoves = gamestate.getAllMoves(myTeam);
+				if (allMoves.size() == 0) return null;
+				int n = r.nextInt(allMoves.size());
+				return allMoves.get(n);
+			//other AI levels
+			case AI_IMPOSSIBLE:
+				Move perfect = tablebaseMove();
+				if (perfect != null) return perfect;
+				return alphaBetaNextMove(Searcher.MAX_PLY); //keep searching deeper until the time runs out
+			default:
+				if (myTeam.getNumPieces() > 3) {
+					return alphaBetaNextMove(difficulty+1);
+				} else {
+					return alphaBetaNextMove(difficulty); //there will be many more moves, don't bother searching for them.
+				}
+			}
+		} finally {
+			stopPondering(); //a pondered search the decision didn't use must not keep running
+		}
+	}
+	
+	/**
+	 * Looks the move up in the endgame tablebase, if it has this position. The tablebase knows the best move for sure, so there is nothing to search.
+	 * @return the best move, with its team set to this player's team, or null if the tablebase doesn't have this position
+	 */
+	private Move tablebaseMove(){
+		int best = tablebase.bestMove(gamestate);
+		if (best == Move.NONE) return null;
+		for (Move move : gamestate.getAllMoves(myTeam)){
+			if (move.encode() == Move.encode(Move.from(best), Move.to(best), Move.NO_POINT)){
+				log("AI - Playing the tablebase move");
+				move.team = myTeam;
+				return move;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Alpha-beta search for where the AI should move. The search is iterative deepening: it searches to depth 1, then 2, and so on until maxDepth or until the time budget runs out.
+	 * The move returned is the best one of the deepest search that finished. Each search starts with the best move of the one before it, and the transposition table orders the moves below the root, so the shallower searches make the deeper ones faster.
+	 * The Searcher scores every position for the side to move (negamax), so the search works the same whether the AI is player 1 or player 2.
+	 * @param maxDepth The deepest search to do, based on the AI difficulty level
+	 * @return bestMove The move that the search algorithm deems the best.
+	 */
+	private Move alphaBetaNextMove(int maxDepth){
+		//CLONE IMMEDIATELY - when we get a list of moves, it includes teams. It must not be the original teams or it will mess everything up.
+		Team cloneTeam = new Team(myTeam); //clone our team so we don't modify it
+		ArrayList<Move> allMyMoves = gamestate.getAllMoves(cloneTeam);
+		if(allMyMoves.size() <= 0) return null; //shortcircuit if there are no moves
+		if(allMyMoves.size() == 1) {
+			allMyMoves.get(0).team = myTeam;
+			return allMyMoves.get(0); //nothing to choose between
+		}
+		
+		Move bestMove = null;
+		int[] rootMoves = new int[allMyMoves.size()];
+		for(int j=0;j<allMyMoves.size();j++){
+			rootMoves[j] = allMyMoves.get(j).encode();
+		}
+		int best = search(rootMoves, rootMoves.length, maxDepth);
+		log("AI searched to depth "+searcher.getCompletedDepth()+" ("+searcher.getNodes()+" nodes)");
+		rememberCapture(best);
+		for (Move move : allMyMoves){
+			if (move.encode() == Move.encode(Move.from(best), Move.to(best), Move.NO_POINT)){
+				bestMove = move;
+			}
+		}
+		//our move points to a team that is not the actual one on the board. 
+		//We must reconstruct the best move, but use the correct team now, otherwise it won't update the right items on the board.
+		bestMove.team = myTeam;
+		return bestMove;
+	}
+	
+	/**
+	 * Gets the coordinates of where this player wants to place a piece on the board.
+	 * @param gamestate board to place on. It is not changed.
+	 * @param deadline time (in ms) the search has to be done by
+	 * @return empty place to put a piece on
+	 */
+	public GamePiece getNextPlace(GameBoard gamestate, long deadline){
+		startDecision(gamestate, deadline);
+		pendingCapture = Move.NO_POINT;
+		try {
+			if (book != null){
+				//the book knows the good places of the first placements, no need to search them
+				int point = book.probe(gamestate, r);
+				if (point >= 0){
+					log("AI - Placing from the opening book");
+					return new GamePiece(point >> 3, point & 7);
+				}
+			}
+			//PLACEMENT OPERATION
+			//Get the placement we want.
+			switch(difficulty){
+			case AI_RANDOM:
+				ArrayList<GamePiece> emptyPlaces = gamestate.getAllEmpty();
+				int n = r.nextInt(emptyPlaces.size());
+				return emptyPlaces.get(n);
+			case AI_IMPOSSIBLE:
+				return alphaBetaPlace(Searcher.MAX_PLY); //keep searching deeper until the time runs out
+			default:
+				return alphaBetaPlace(difficulty+1);
+			}
+		} finally {
+			stopPondering(); //a pondered search the decision didn't use must not keep running
+		}
+	}
+	
+	/**
+	 * Finds the optimal position to place a piece on the board during setup.
+	 * It does an iterative deepening search like alphaBetaNextMove(). The search runs on past the last placement into the movement phase, so a place is judged by the game that follows it.
+	 * @param maxDepth deepest search to do for the best place to place
+	 * @return gamepiece where a piece will be placed
+	 */
+	private GamePiece alphaBetaPlace(int maxDepth) {
+		GamePiece bestPlace = null;
+		ArrayList<GamePiece> empty = gamestate.getAllEmpty();
+		if (gamestate.getTeam1().getPiecesRemainingToPlace() <= 0 && gamestate.getTeam2().getPiecesRemainingToPlace() <= 0) {
+			log("Exceeding number of pieces to place");
+			return null;
+		}
+		//do a normal search, deepening until the time runs out.
+		int[] rootPlaces = new int[empty.size()];
+		for(int j=0;j<empty.size();j++){
+			rootPlaces[j] = Move.encode(Move.NO_POINT, BitBoard.index(empty.get(j).getR(), empty.get(j).getP()), Move.NO_POINT);
+		}
+		int best = search(rootPlaces, rootPlaces.length, maxDepth);
+		log("AI searched to depth "+searcher.getCompletedDepth()+" ("+searcher.getNodes()+" nodes)");
+		rememberCapture(best);
+		for (GamePiece piece : empty){
+			if (BitBoard.index(piece.getR(), piece.getP()) == Move.to(best)){
+				bestPlace = piece;
+			}
+		}
+		return bestPlace;
+	}
+	
+	/**
+	 * Gets the enemy piece this player wants to destroy after making a mill.
+	 * If the move that made the mill came from this player's search, the search already picked the piece along with the move, so that piece is used.
+	 * Otherwise the capture is searched on its own, the same way as a move.
+	 * @param gamestate board as it is after the mill was made. It is not changed.
+	 * @param deadline time (in ms) the search has to be done by
+	 * @return coordinates of the piece to destroy
+	 */
+	public GamePiece getNextDestroy(GameBoard gamestate, long deadline) {
+		startDecision(gamestate, deadline);
+		switch(difficulty){
+		case AI_RANDOM:
+			//random, but only from the pieces the rules allow
+			ArrayList<GamePiece> enemyPieces = gamestate.getAllDestroyable(enemyTeam);
+			int n = r.nextInt(enemyPieces.size());
+			GamePiece destroyPiece = enemyPieces.get(n); //get the piece to destroy
+			return new GamePiece(destroyPiece.getR(),destroyPiece.getP());
+		case AI_IMPOSSIBLE:
+			GamePiece perfect = tablebaseDestroy();
+			if (perfect != null) return perfect;
+			return searchDestroy(gamestate, Searcher.MAX_PLY, deadline); //keep searching deeper until the time runs out
+		default:
+			return searchDestroy(gamestate, difficulty+1, deadline);
+		}
+	}
+	
+	/**
+	 * Gets the piece the search picked along with the move that made the mill, or searches the capture on its own if there is none for this board.
+	 * @param gamestate board as it is after the mill was made
+	 * @param maxDepth deepest depth to search the capture to
+	 * @param deadline time (in ms) the search has to be done by
+	 * @return coordinates of the piece to destroy
+	 */
+	private GamePiece searchDestroy(GameBoard gamestate, int maxDepth, long deadline){
+		int capture = pendingCapture;
+		pendingCapture = Move.NO_POINT;
+		if (capture == Move.NO_POINT || gamestate.getOccupancy(myTeam) != pendingOwn || gamestate.getOccupancy(enemyTeam) != pendingEnemy){
+			capture = searcher.searchCapture(gamestate, maxDepth, deadline);
+			log("AI searched the capture to depth "+searcher.getCompletedDepth()+" ("+searcher.getNodes()+" nodes)");
+		}
+		return new GamePiece(capture >> 3, capture & 7);
+	}
+	
+	/**
+	 * Remembers the piece the search picked to take with its move, so getNextDestroy() doesn't have to search for it again.
+	 * @param best encoded move the search returned, with its capture
+	 */
+	private void rememberCapture(int best){
+		pendingCapture = Move.capture(best);
+		pendingOwn = gamestate.getOccupancy(myTeam) | (1 << Move.to(best));
+		if (Move.from(best) != Move.NO_POINT){
+			pendingOwn &= ~(1 << Move.from(best));
+		}
+		pendingEnemy = gamestate.getOccupancy(enemyTeam);
+	}
+	
+	/**
+	 * Searches for the best of the root moves. If the opponent made the reply pondering predicted, the pondering search has been searching this position all along,
+	 * so its result is used instead: right away if it has searched for at least as long as this decision may take, otherwise once it has.
+	 * @param rootMoves encoded moves or placements to choose from
+	 * @param count number of root moves
+	 * @param maxDepth deepest depth to search to
+	 * @return the best root move, with the piece it should take if it forms a mill
+	 */
+	private int search(int[] rootMoves, int count, int maxDepth){
+		Thread thread = ponderThread;
+		if (thread != null && ponderKey == gamestate.getZobristKey()){
+			long ponderDeadline = ponderStart + Math.max(0, deadline - System.currentTimeMillis());
+			try {
+				while (thread.isAlive()){
+					searcher.setDeadline(ponderDeadline); //again every time, in case the pondering search was only just starting
+					thread.join(10);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); //cancelled, stopPondering() will end the pondering
+			}
+			int best = ponderResult;
+			for (int i = 0; i < count && best != Move.NONE; i++){
+				if (Move.from(rootMoves[i]) == Move.from(best) && Move.to(rootMoves[i]) == Move.to(best)){
+					log("AI - Pondering predicted this position");
+					return best;
+				}
+			}
+		}
+		stopPondering();
+		return searcher.search(gamestate, rootMoves, count, maxDepth, deadline);
+	}
+	
+	/**
+	 * Starts pondering: searching on the opponent's time. The opponent's reply is predicted with the transposition table (or a short search if it doesn't know),
+	 * and the position after it is searched in the background, like this player's next decision would search it, until the opponent moves.
+	 * If the opponent plays the predicted reply, the next decision takes the result of that search. If not, the search still filled the transposition table.
+	 * @param gamestate board with the opponent to move. It is copied, so it can be changed while pondering goes on.
+	 */
+	public synchronized void startPondering(GameBoard gamestate){
+		stopPondering();
+		if (searcher == null){
+			return; //the random AI has nothing to ponder
+		}
+		final GameBoard board = new GameBoard(gamestate);
+		ponderKey = 0;
+		ponderResult = Move.NONE;
+		ponderStart = System.currentTimeMillis();
+		ponderThread = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				ponder(board);
+			}
+		}, "Ponder "+playerID);
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+	
+	/**
+	 * Stops pondering, and waits for the pondering search to end so the searcher can be used again. Does nothing if this player isn't pondering.
+	 */
+	public synchronized void stopPondering(){
+		Thread thread = ponderThread;
+		if (thread == null){
+			return;
+		}
+		ponderThread = null;
+		ponderKey = 0;
+		thread.interrupt(); //cancels the search it is running
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Runs on the pondering thread: predicts the opponent's reply and searches the position after it, with no deadline.
+	 * @param board board with the opponent to move, only used by this thread
+	 */
+	private void ponder(GameBoard board){
+		int predicted = searcher.hashMove(board);
+		if (predicted == Move.NONE){
+			predicted = searcher.searchAll(board, PREDICT_DEPTH, Long.MAX_VALUE);
+		}
+		if (predicted == Move.NONE || Thread.currentThread().isInterrupted()){
+			return;
+		}
+		board.makeMove(predicted);
+		ponderKey = board.getZobristKey();
+		int best = searcher.searchAll(board, searchDepth(board), Long.MAX_VALUE);
+		if (!Thread.currentThread().isInterrupted()){
+			ponderResult = best;
+		}
+	}
+	
+	/**
+	 * Gets the deepest depth a decision on a board searches to, the same as getNextMove() and getNextPlace() use.
+	 * @param board board with this player to move
+	 * @return depth to search to
+	 */
+	private int searchDepth(GameBoard board){
+		Team team = (playerID == GameBoard.PLAYER1) ? board.getTeam1() : board.getTeam2();
+		if (difficulty == AI_IMPOSSIBLE){
+			return Searcher.MAX_PLY;
+		}
+		if (team.getPiecesRemainingToPlace() > 0 || team.getNumPieces() > 3){
+			return difficulty+1;
+		}
+		return difficulty;
+	}
+	
+	/**
+	 * Picks the piece to destroy with the endgame tablebase, if it has the positions after every capture.
+	 * @return the piece whose capture scores best, or null if the tablebase can't tell
+	 */
+	private GamePiece tablebaseDestroy(){
+		if (!gamestate.allowFlying() || myTeam.getPiecesRemainingToPlace() != 0 || enemyTeam.getPiecesRemainingToPlace() != 0) return null;
+		long state = gamestate.toBitBoard();
+		int mySide = (playerID == GameBoard.PLAYER1) ? BitBoard.SIDE_PLAYER1 : BitBoard.SIDE_PLAYER2;
+		int own = BitBoard.occupancy(state, mySide), other = BitBoard.occupancy(state, mySide ^ 1);
+		GamePiece best = null;
+		int bestScore = Tablebase.NO_SCORE;
+		for (GamePiece piece : gamestate.getAllDestroyable(enemyTeam)){
+			int score = tablebase.scoreAfterTurn(own, other & ~(1 << BitBoard.index(piece.getR(), piece.getP())));
+			if (score == Tablebase.NO_SCORE) return null;
+			if (best == null || score > bestScore){
+				best = piece;
+				bestScore = score;
+			}
+		}
+		if (best != null){
+			log("AI - Destroying with the tablebase");
+			return new GamePiece(best.getR(), best.getP());
+		}
+		return null;
+	}
+	
+	/**
+	 * THIS METHOD IS CURRENTLY NOT USED DUE TO DESYNCHRONIZATION ISSUES.
+	 * IT MAY BE FIXED IN THE FUTURE.
+	 * This method is used to identify if a piece at position p is blocking the formation of a mill. It is used when the AI is determining what piece to destroy.
+	 * @param board Gameboard to evaluate if piece p is blocking a mill
+	 * @param p Piece position on the board to check if its blocking a mill
+	 * @return true if this piece is blocking a mill formation, false otherwise.
+	 */
+	private boolean isBlockingMill(GameBoard board, GamePiece p) {
+		
+		//we need to see if this is even 'millable', assuming this piece was destroyed and replaced with a piece we have.
+		if (!board.detectNineManMill((board.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? board.getTeam1() : board.getTeam2(), p.getR(), p.getP())){
+			//we didn't use the board we clone below (thisTeam) as it would tie the variable to the original teams and modify them.
+			return false; //no direct mill potential if this piece is destroyed
+		}
+		GameBoard simulationBoard = new GameBoard(board); //clone so we don't modify our real board
+		Team thisTeam = (simulationBoard.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? simulationBoard.getTeam1() : simulationBoard.getTeam2();
+		Team otherTeam = (simulationBoard.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? simulationBoard.getTeam2() : simulationBoard.getTeam1();
+
+		simulationBoard.removePiece(otherTeam, p.getR(), p.getP()); //simulate killing it
+
+		ArrayList<Move> possibleMillMoves = simulationBoard.getAllMoves(thisTeam);
+		for (Move millmove : possibleMillMoves){
+			if (millmove.Rd == p.getR() && millmove.Pd == p.getP()){
+				//simulate a move here first
+				GameBoard moveBoard = new GameBoard(simulationBoard);
+				try {
+					Team simTeam = (moveBoard.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? moveBoard.getTeam1() : moveBoard.getTeam2(); //still the current turns' team - ignoring enemy movement/placements, is it possible to move here when my turn happens again?
+					millmove.team = simTeam; //this prevents desyncs front=to=backend
+					moveBoard.movePiece(millmove);
+					if (moveBoard.detectNineManMill(simTeam, p.getR(), p.getP())){
+						//mill will occur here
+						return true;
+					}
+				} catch (PiecePlacementException e) {
+					System.err.println("Simulating millmove when destroying a blocking piece in isBlockingMill(): "+e.getMessage());
+				}
+			}
+		}
+		
+		return false;
+	}
+
+
+	/**
+	 * Remembers the board (and its teams) that the next decision is for.
+	 * @param gamestate board to decide on
+	 * @param deadline time (in ms) the search has to be done by
+	 */
+	private void startDecision(GameBoard gamestate, long deadline){
+		this.gamestate = gamestate;
+		this.deadline = deadline;
+		myTeam = (playerID == GameBoard.PLAYER1) ? gamestate.getTeam1() : gamestate.getTeam2();
+		enemyTeam = (playerID == GameBoard.PLAYER1) ? gamestate.getTeam2() : gamestate.getTeam1();
+	}
+	
+	/**
+	 * Prints a line of this player's log, marked with its difficulty and player, if logging is on.
+	 * @param message what the player is doing
+	 */
+	private void log(String message){
+		if (logging){
+			System.out.println("["+getDifficultyString()+" "+playerID+"] "+message);
+		}
+	}
+	
+	/**
+	 * Gets the AI level of this player.
+	 * @return difficulty, one of the AI_ constants
+	 */
+	public int getDifficulty(){
+		return difficulty;
+	}
+	
+	/**
+	 * Converts a difficulty level into a human readable string.
+	 * @return Human readable difficulty level string
+	 */
+	public String getDifficultyString() {
+		return getDifficultyString(difficulty);
+	}
+	
+	/**
+	 * Converts any difficulty level into a human readable string.
+	 * @param difficulty difficulty level
+	 * @return Human readable difficulty level string
+	 */
+	public static String getDifficultyString(int difficulty) {
+		switch (difficulty){
+		case 0:
+			return "Human";
+		case 1:
+			return "Random";
+		case 2:
+			return "Moderate";
+		case 3:
+			return "Hard";
+		case 4:
+			return "Extreme";
+		default:
+			return "Unknown difficulty";
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package com.cs471.ninemanmill;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * Times the parts of the game and the AI that run the most: move generation, mill detection, finding destroyable pieces, copying boards,
+ * the evaluation functions and whole searches to fixed depths. Each one is timed on a set of placement, midgame and endgame positions.
+ *
+ * Every benchmark is run for a few warmup iterations first so the JIT has compiled it, then for the measured iterations. An iteration calls the benchmark over and over
+ * until its time is up, and its score is the average time of one call. The mean score and its 99.9% error over the iterations (from the Student t distribution, as there are few iterations) are printed, and can be written to a JSON file
+ * so results can be compared between versions.
+ *
+ * Usage: java com.cs471.ninemanmill.Benchmark [-json file] [-warmup N] [-iterations N] [-time ms] [-depths 2,4] [-filter text]
+ * @author Michael Perez
+ *
+ */
+public class Benchmark {
+	private final static String[] POSITION_NAMES = {"placement", "midgame", "endgame-flying", "endgame-3v3"};
+	private final static long[] POSITIONS = {
+		BitBoard.fromString("1E2E1E2EE12E2EE1EE1EE2EE", 4, 4, BitBoard.SIDE_PLAYER1), //5 v 5, four left to place each
+		BitBoard.fromString("12112E21" + "2E1E21E2" + "E12EE1E2", 0, 0, BitBoard.SIDE_PLAYER2), //8 v 8, moving
+		BitBoard.fromString("1EE2EE2E" + "E1E2E2EE" + "EEE1E2EE", 0, 0, BitBoard.SIDE_PLAYER1), //3 v 5, player 1 flies
+		BitBoard.fromString("1E2EE1EE" + "E2EE1E2E" + "EEEEEEEE", 0, 0, BitBoard.SIDE_PLAYER2) //3 v 3, both fly
+	};
+	private final static double[] T_999 = {636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59,
+		4.44, 4.32, 4.22, 4.14, 4.07, 4.01, 3.97, 3.92, 3.88, 3.85,
+		3.82, 3.79, 3.77, 3.75, 3.73, 3.71, 3.69, 3.67, 3.66, 3.65}; //99.9% two-sided Student t quantiles for 1 to 30 degrees of freedom, like JMH uses for the error
+	private final static double T_999_40 = 3.55; //the quantile for 40, 60 and 120 degrees of freedom, and the normal one for more
+	private final static double T_999_60 = 3.46;
+	private final static double T_999_120 = 3.37;
+	private final static double Z_999 = 3.29;
+
+	private int warmupIterations = 1;
+	private int iterations = 5;
+	private long iterationMillis = 500;
+	private int[] searchDepths = {2, 4};
+	private String filter = null;
+	private String jsonFile = null;
+	private ArrayList<Result> results = new ArrayList<Result>();
+	private static long sink; //benchmarks add their answers here so the JIT can't throw the work away
+
+	/**
+	 * Runs the benchmarks from the command line.
+	 * @param args options, see the class description
+	 */
+	public static void main(String[] args){
+		Benchmark benchmark = new Benchmark();
+		try {
+			benchmark.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java com.cs471.ninemanmill.Benchmark [-json file] [-warmup N] [-iterations N] [-time ms] [-depths 2,4] [-filter text]");
+			System.exit(1);
+		}
+		benchmark.run();
+	}
+
+	/**
+	 * Reads the options.
+	 * @param args command line arguments
+	 * @throws IllegalArgumentException if an argument can't be understood
+	 */
+	private void parseArguments(String[] args){
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("-json")){
+				jsonFile = CommandLine.value(args, ++i);
+			} else if (args[i].equals("-warmup")){
+				warmupIterations = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-iterations")){
+				iterations = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-time")){
+				iterationMillis = CommandLine.longValue(args, ++i);
+			} else if (args[i].equals("-depths")){
+				String[] depths = CommandLine.value(args, ++i).split(",");
+				searchDepths = new int[depths.length];
+				try {
+					for (int d = 0; d < depths.length; d++){
+						searchDepths[d] = Integer.parseInt(depths[d].trim());
+					}
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Bad number after -depths: "+args[i]);
+				}
+			} else if (args[i].equals("-filter")){
+				filter = CommandLine.value(args, ++i);
+			} else {
+				throw new IllegalArgumentException("Unknown option "+args[i]);
+			}
+		}
+		if (iterations < 1 || warmupIterations < 0 || iterationMillis < 1){
+			throw new IllegalArgumentException("-iterations and -time must be at least 1");
+		}
+	}
+
+	/**
+	 * Runs every benchmark on every position, prints the results and writes the JSON file if one was asked for.
+	 */
+	private void run(){
+		System.out.println(String.format("%-28s %-16s %14s %12s %12s", "Benchmark", "Position", "ns/op", "error", "nodes/op"));
+		for (int i = 0; i < POSITIONS.length; i++){
+			for (Operation operation : operations()){
+				String name = operation.name;
+				if (filter != null && !name.contains(filter) && !POSITION_NAMES[i].contains(filter)){
+					continue;
+				}
+				GameBoard board = GameBoard.fromBitBoard(POSITIONS[i], true);
+				if (!operation.appliesTo(board)){
+					continue;
+				}
+				Result result = measure(operation, board, POSITION_NAMES[i]);
+				results.add(result);
+				System.out.println(String.format("%-28s %-16s %14.1f %12.1f %12s", result.benchmark, result.position, result.score, result.error,
+						(result.nodes > 0) ? String.valueOf(result.nodes) : "-"));
+			}
+		}
+		if (jsonFile != null){
+			try {
+				writeJson(jsonFile);
+				System.out.println("Results written to "+jsonFile);
+			} catch (IOException e) {
+				System.err.println("ERROR: Could not write results to "+jsonFile);
+				e.printStackTrace();
+			}
+		}
+		if (sink == 42){
+			System.out.println(); //only here so sink is read
+		}
+	}
+
+	/**
+	 * Times one benchmark on one position.
+	 * @param operation benchmark to run
+	 * @param board position to run it on
+	 * @param position name of the position
+	 * @return mean time of one call, with its error
+	 */
+	private Result measure(Operation operation, GameBoard board, String position){
+		double[] scores = new double[iterations];
+		for (int i = -warmupIterations; i < iterations; i++){
+			long calls = 0;
+			long start = System.nanoTime();
+			long end = start + iterationMillis * 1000000L;
+			long now;
+			do {
+				sink += operation.run(board);
+				calls++;
+				now = System.nanoTime();
+			} while (now < end);
+			if (i >= 0){
+				scores[i] = (double) (now - start) / calls;
+			}
+		}
+		double mean = 0;
+		for (double score : scores){
+			mean += score;
+		}
+		mean /= iterations;
+		double variance = 0;
+		for (double score : scores){
+			variance += (score - mean) * (score - mean);
+		}
+		double error = (iterations > 1) ? tQuantile(iterations - 1) * Math.sqrt(variance / (iterations - 1)) / Math.sqrt(iterations) : Double.NaN;
+		return new Result(operation.name, position, mean, error, operation.nodes);
+	}
+
+	/**
+	 * Gets the 99.9% two-sided Student t quantile, which the error of a mean over few iterations needs instead of the normal one.
+	 * Between the tabled degrees of freedom the quantile of the next smaller one is used, so the error is never too small.
+	 * @param degrees degrees of freedom, one less than the iterations
+	 * @return the quantile
+	 */
+	private static double tQuantile(int degrees){
+		if (degrees <= T_999.length){
+			return T_999[degrees - 1];
+		} else if (degrees < 40){
+			return T_999[T_999.length - 1];
+		} else if (degrees < 60){
+			return T_999_40;
+		} else if (degrees < 120){
+			return T_999_60;
+		} else if (degrees < 1000){
+			return T_999_120;
+		}
+		return Z_999;
+	}
+
+	/**
+	 * Makes the list of benchmarks.
+	 * @return every benchmark, the searches last
+	 */
+	private ArrayList<Operation> operations(){
+		ArrayList<Operation> operations = new ArrayList<Operation>();
+		operations.add(new Operation("getAllMoves"){
+			@Override
+			boolean appliesTo(GameBoard board){
+				return !board.isPlacementPhase();
+			}
+			@Override
+			long run(GameBoard board){
+				return board.getAllMoves(toMove(board)).size();
+			}
+		});
+		operations.add(new Operation("generateMoves"){
+			private int[] moves = new int[GameBoard.MAX_MOVES];
+			@Override
+			long run(GameBoard board){
+				return board.generateMoves(toMove(board), moves, 0);
+			}
+		});
+		operations.add(new Operation("detectNineManMill"){
+			@Override
+			long run(GameBoard board){
+				//every point, as the AI does when looking for places to make a mill
+				Team team = toMove(board);
+				long mills = 0;
+				for (int r = 0; r < 3; r++){
+					for (int p = 0; p < 8; p++){
+						if (board.detectNineManMill(team, r, p)){
+							mills++;
+						}
+					}
+				}
+				return mills;
+			}
+		});
+		operations.add(new Operation("getAllDestroyable"){
+			@Override
+			long run(GameBoard board){
+				return board.getAllDestroyable(waiting(board)).size();
+			}
+		});
+		operations.add(new Operation("copyConstructor"){
+			@Override
+			long run(GameBoard board){
+				return new GameBoard(board).CURRENT_TURN;
+			}
+		});
+		final Searcher evalSearcher = new Searcher(GameBoard.PLAYER1, AIPlayer.AI_IMPOSSIBLE, 1, 1);
+		operations.add(new Operation("evalBoardPlace"){
+			@Override
+			long run(GameBoard board){
+				return evalSearcher.evalBoardPlace(board, toMove(board), waiting(board));
+			}
+		});
+		operations.add(new Operation("evalBoardMove"){
+			@Override
+			long run(GameBoard board){
+				return evalSearcher.evalBoardMove(board, toMove(board), waiting(board));
+			}
+		});
+		for (final int depth : searchDepths){
+			operations.add(new Operation("search depth "+depth){
+				private Searcher searcher;
+				private int[] moves = new int[GameBoard.MAX_MOVES];
+				@Override
+				long run(GameBoard board){
+					if (searcher == null){
+						char player = (board.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? GameBoard.PLAYER1 : GameBoard.PLAYER2;
+						searcher = new Searcher(player, AIPlayer.AI_IMPOSSIBLE, 1, 16);
+					}
+					searcher.clearTable(); //every call does the same search from scratch
+					Team team = toMove(board);
+					int count = board.generateMoves(team, moves, 0);
+					int best = searcher.search(board, moves, count, depth, Long.MAX_VALUE);
+					nodes = searcher.getNodes();
+					return best;
+				}
+			});
+		}
+		return operations;
+	}
+
+	/**
+	 * Gets the team whose turn it is.
+	 * @param board board to look at
+	 * @return team to move
+	 */
+	private static Team toMove(GameBoard board){
+		return (board.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? board.getTeam1() : board.getTeam2();
+	}
+
+	/**
+	 * Gets the team that is waiting for its turn.
+	 * @param board board to look at
+	 * @return team not to move
+	 */
+	private static Team waiting(GameBoard board){
+		return (board.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? board.getTeam2() : board.getTeam1();
+	}
+
+	/**
+	 * Writes the results as a JSON array, one object per benchmark and position, with the settings they were run with.
+	 * @param fileName file to write
+	 * @throws IOException if the file can't be written
+	 */
+	private void writeJson(String fileName) throws IOException {
+		PrintWriter writer = new PrintWriter(new FileWriter(fileName));
+		try {
+			writer.println("{");
+			writer.println("  \"date\": \""+new Date()+"\",");
+			writer.println("  \"java\": \""+System.getProperty("java.version")+"\",");
+			writer.println("  \"warmupIterations\": "+warmupIterations+",");
+			writer.println("  \"iterations\": "+iterations+",");
+			writer.println("  \"iterationMillis\": "+iterationMillis+",");
+			writer.println("  \"results\": [");
+			for (int i = 0; i < results.size(); i++){
+				Result result = results.get(i);
+				writer.print("    {\"benchmark\": \""+result.benchmark+"\", \"position\": \""+result.position+"\", \"mode\": \"avgt\", \"unit\": \"ns/op\", ");
+				writer.print("\"score\": "+jsonNumber(result.score)+", \"scoreError\": "+jsonNumber(result.error));
+				if (result.nodes > 0){
+					writer.print(", \"nodes\": "+result.nodes);
+				}
+				writer.println("}"+((i < results.size() - 1) ? "," : ""));
+			}
+			writer.println("  ]");
+			writer.println("}");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Formats a number for JSON, which has no NaN.
+	 * @param value number to write
+	 * @return the number, or null if it is not a number
+	 */
+	private static String jsonNumber(double value){
+		return (Double.isNaN(value) || Double.isInfinite(value)) ? "null" : String.format("%.3f", value);
+	}
+
+	/**
+	 * One benchmark: something to time on a board.
+	 */
+	private abstract static class Operation {
+		private final String name;
+		protected long nodes; //positions searched by the last call, for searches
+
+		Operation(String name){
+			this.name = name;
+		}
+
+		/**
+		 * Checks if this benchmark makes sense on a board.
+		 * @param board board to check
+		 * @return true if it should be run on this board
+		 */
+		boolean appliesTo(GameBoard board){
+			return true;
+		}
+
+		/**
+		 * Runs the benchmark once. The board must be the same afterwards.
+		 * @param board board to run on
+		 * @return a number that depends on the work done, so it can't be skipped
+		 */
+		abstract long run(GameBoard board);
+	}
+
+	/**
+	 * The timing of one benchmark on one position.
+	 */
+	private static class Result {
+		private final String benchmark;
+		private final String position;
+		private final double score;
+		private final double error;
+		private final long nodes;
+
+		Result(String benchmark, String position, double score, double error, long nodes){
+			this.benchmark = benchmark;
+			this.position = position;
+			this.score = score;
+			this.error = error;
+			this.nodes = nodes;
+		}
+	}
+}
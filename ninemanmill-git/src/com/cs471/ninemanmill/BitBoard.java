@@ -0,0 +1,369 @@
+package com.cs471.ninemanmill;
+
+/**
+ * The bitboard is a compact alternative to the GameBoard, meant for searches and batch analysis where cloning a GameBoard (and both of its teams) is too expensive.
+ * An entire game state fits in a single long, so copying a state is just copying a number, and every operation is done with mask arithmetic.
+ *
+ * Each of the 24 points on the board has an index of R*8+P, using the same ring/position layout as GameBoard.
+ * The long is laid out as follows:
+ *  - bits 0-23: player 1's occupancy mask
+ *  - bits 24-47: player 2's occupancy mask
+ *  - bits 48-51: player 1's pieces left in hand (left to place)
+ *  - bits 52-55: player 2's pieces left in hand
+ *  - bit 56: side to move (0 for player 1, 1 for player 2)
+ *
+ * Sides are numbered 0 (player 1) and 1 (player 2) in this class. All methods are static and never modify anything, they return a new state instead.
+ * Methods do not validate their input, callers should only pass legal operations (use the mask accessors to check first).
+ * @author Michael Perez
+ *
+ */
+public final class BitBoard {
+	public final static int SIDE_PLAYER1 = 0;
+	public final static int SIDE_PLAYER2 = 1;
+	public final static int POINTS = 24;
+	public final static int FULL_MASK = 0xFFFFFF; //all 24 points
+	public final static int MIDSECTION_MASK = 0xAAAAAA; //points in the middle of a side (odd positions), the ones with more than two neighbours
+
+	private final static int OCCUPANCY_BITS = 24;
+	private final static int HAND_SHIFT = 48;
+	private final static int HAND_BITS = 4;
+	private final static long HAND_MASK = 0xF;
+	private final static int TURN_SHIFT = 56;
+
+	/** State at the start of a game: an empty board, 9 pieces in each hand and player 1 to move */
+	public final static long START_STATE = (9L << HAND_SHIFT) | (9L << (HAND_SHIFT + HAND_BITS));
+
+	private BitBoard(){
+		//static methods only
+	}
+
+	/**
+	 * Converts a ring and position into a point index.
+	 * @param R Ring (0-2)
+	 * @param P Position on the ring (0-7)
+	 * @return point index (0-23)
+	 */
+	public static int index(int R, int P){
+		return (R << 3) | P;
+	}
+
+	/**
+	 * Gets the ring of a point index.
+	 * @param point point index
+	 * @return ring (0-2)
+	 */
+	public static int ring(int point){
+		return point >> 3;
+	}
+
+	/**
+	 * Gets the position on a ring of a point index.
+	 * @param point point index
+	 * @return position (0-7)
+	 */
+	public static int position(int point){
+		return point & 7;
+	}
+
+	/**
+	 * Converts a GameBoard team turn constant into a bitboard side.
+	 * @param turn GameBoard.PLAYER1_TURN or GameBoard.PLAYER2_TURN
+	 * @return SIDE_PLAYER1 or SIDE_PLAYER2
+	 */
+	public static int sideOfTurn(int turn){
+		return (turn == GameBoard.PLAYER1_TURN) ? SIDE_PLAYER1 : SIDE_PLAYER2;
+	}
+
+	/**
+	 * Builds a state out of its parts.
+	 * @param player1 player 1's occupancy mask
+	 * @param player2 player 2's occupancy mask
+	 * @param player1InHand pieces player 1 has left to place
+	 * @param player2InHand pieces player 2 has left to place
+	 * @param side side to move
+	 * @return packed state
+	 */
+	public static long pack(int player1, int player2, int player1InHand, int player2InHand, int side){
+		return (player1 & FULL_MASK)
+				| ((long) (player2 & FULL_MASK) << OCCUPANCY_BITS)
+				| ((long) player1InHand << HAND_SHIFT)
+				| ((long) player2InHand << (HAND_SHIFT + HAND_BITS))
+				| ((long) side << TURN_SHIFT);
+	}
+
+	/**
+	 * Gets the occupancy mask of a side.
+	 * @param state packed state
+	 * @param side side to get the mask of
+	 * @return 24 bit mask of the points this side has a piece on
+	 */
+	public static int occupancy(long state, int side){
+		return (int) (state >>> (side * OCCUPANCY_BITS)) & FULL_MASK;
+	}
+
+	/**
+	 * Gets the mask of all empty points.
+	 * @param state packed state
+	 * @return 24 bit mask of empty points
+	 */
+	public static int emptyPoints(long state){
+		return ~((int) state | (int) (state >>> OCCUPANCY_BITS)) & FULL_MASK;
+	}
+
+	/**
+	 * Gets the amount of pieces a side has left to place.
+	 * @param state packed state
+	 * @param side side to check
+	 * @return pieces in hand
+	 */
+	public static int inHand(long state, int side){
+		return (int) ((state >>> (HAND_SHIFT + side * HAND_BITS)) & HAND_MASK);
+	}
+
+	/**
+	 * Gets the side that is to move.
+	 * @param state packed state
+	 * @return SIDE_PLAYER1 or SIDE_PLAYER2
+	 */
+	public static int sideToMove(long state){
+		return (int) (state >>> TURN_SHIFT) & 1;
+	}
+
+	/**
+	 * Gets the number of pieces a side has on the board.
+	 * @param state packed state
+	 * @param side side to count
+	 * @return number of pieces on the board
+	 */
+	public static int pieceCount(long state, int side){
+		return Integer.bitCount(occupancy(state, side));
+	}
+
+	/**
+	 * Checks if the game is still in the placement phase, which lasts until both hands are empty.
+	 * @param state packed state
+	 * @return true if a piece is still left to be placed
+	 */
+	public static boolean isPlacementPhase(long state){
+		return (state & (0xFFL << HAND_SHIFT)) != 0;
+	}
+
+	/**
+	 * Hands the turn over to the other side.
+	 * @param state packed state
+	 * @return state with the other side to move
+	 */
+	public static long switchSide(long state){
+		return state ^ (1L << TURN_SHIFT);
+	}
+
+	/**
+	 * Places a piece from the hand of the side to move. The point must be empty and the side must have a piece in hand.
+	 * The turn does not change, since a mill might require the same side to remove a piece first.
+	 * @param state packed state
+	 * @param point point to place on
+	 * @return new state
+	 */
+	public static long place(long state, int point){
+		int side = sideToMove(state);
+		return (state | (1L << (point + side * OCCUPANCY_BITS))) - (1L << (HAND_SHIFT + side * HAND_BITS));
+	}
+
+	/**
+	 * Moves (or flies) a piece of the side to move. The turn does not change.
+	 * @param state packed state
+	 * @param from point the piece is on
+	 * @param to empty point the piece is moving to
+	 * @return new state
+	 */
+	public static long move(long state, int from, int to){
+		return state ^ (((1L << from) | (1L << to)) << (sideToMove(state) * OCCUPANCY_BITS));
+	}
+
+	/**
+	 * Removes a piece of the side that is not to move, as happens after the side to move forms a mill. The turn does not change.
+	 * @param state packed state
+	 * @param point point of the opponent piece to remove
+	 * @return new state
+	 */
+	public static long remove(long state, int point){
+		return state & ~(1L << (point + (sideToMove(state) ^ 1) * OCCUPANCY_BITS));
+	}
+
+	/**
+	 * Checks if the point is part of a mill in an occupancy mask. Like GameBoard.detectNineManMill(), the point itself is treated as occupied, so this also answers if a piece arriving there would form a mill.
+	 * @param occupancy occupancy mask of a side
+	 * @param point point to check
+	 * @return true if either of the lines through this point is full
+	 */
+	public static boolean isMill(int occupancy, int point){
+		int[] mills = BoardTables.MILLS_AT_POINT[point];
+		occupancy |= 1 << point;
+		return (occupancy & mills[0]) == mills[0] || (occupancy & mills[1]) == mills[1];
+	}
+
+	/**
+	 * Checks if the side to move formed a mill with the piece that just arrived on a point.
+	 * @param state packed state after the place or move
+	 * @param point point the piece arrived on
+	 * @return true if a mill was formed
+	 */
+	public static boolean formsMill(long state, int point){
+		return isMill(occupancy(state, sideToMove(state)), point);
+	}
+
+	/**
+	 * Gets the mask of all points of a side that are in a mill.
+	 * @param occupancy occupancy mask of a side
+	 * @return mask of pieces in mills
+	 */
+	public static int millPieces(int occupancy){
+		int inMill = 0;
+		for (int mill : BoardTables.MILL_LINES){
+			if ((occupancy & mill) == mill){
+				inMill |= mill;
+			}
+		}
+		return inMill;
+	}
+
+	/**
+	 * Gets the mask of opponent pieces that the side to move may remove. Pieces in mills can not be removed, unless all of them are in mills.
+	 * @param state packed state
+	 * @return mask of removable opponent pieces
+	 */
+	public static int removable(long state){
+		int other = occupancy(state, sideToMove(state) ^ 1);
+		int free = other & ~millPieces(other);
+		return (free != 0) ? free : other;
+	}
+
+	/**
+	 * Gets the points where a side could close a mill with its next turn: empty points of a line that already has two of its pieces,
+	 * that it can place on, fly to, or reach with a piece that isn't part of that line.
+	 * @param state packed state
+	 * @param side side to check
+	 * @param allowFlyMode if this game allows flying
+	 * @return mask of the points that would close a mill
+	 */
+	public static int millThreats(long state, int side, boolean allowFlyMode){
+		int own = occupancy(state, side);
+		int empty = emptyPoints(state);
+		boolean anywhere = inHand(state, side) > 0 || canFly(state, side, allowFlyMode);
+		int threats = 0;
+		for (int mill : BoardTables.MILL_LINES){
+			int open = mill & empty;
+			if (Integer.bitCount(own & mill) != 2 || open == 0){
+				continue;
+			}
+			if (anywhere || (BoardTables.ADJACENT_MASK[Integer.numberOfTrailingZeros(open)] & own & ~mill) != 0){
+				threats |= open;
+			}
+		}
+		return threats;
+	}
+
+	/**
+	 * Gets the mask of points adjacent to a point.
+	 * @param point point index
+	 * @return mask of adjacent points
+	 */
+	public static int adjacent(int point){
+		return BoardTables.ADJACENT_MASK[point];
+	}
+
+	/**
+	 * Checks if a side is allowed to fly, which happens when it is down to three pieces.
+	 * @param state packed state
+	 * @param side side to check
+	 * @param allowFlyMode if this game allows flying at all
+	 * @return true if this side can move to any empty point
+	 */
+	public static boolean canFly(long state, int side, boolean allowFlyMode){
+		return allowFlyMode && pieceCount(state, side) == 3;
+	}
+
+	/**
+	 * Checks if the side to move has any legal move. A side with pieces in hand can always place.
+	 * @param state packed state
+	 * @param allowFlyMode if this game allows flying
+	 * @return true if there is at least one legal move
+	 */
+	public static boolean hasMoves(long state, boolean allowFlyMode){
+		int side = sideToMove(state);
+		int empty = emptyPoints(state);
+		if (inHand(state, side) > 0 || canFly(state, side, allowFlyMode)){
+			return empty != 0;
+		}
+		for (int own = occupancy(state, side); own != 0; own &= own - 1){
+			if ((BoardTables.ADJACENT_MASK[Integer.numberOfTrailingZeros(own)] & empty) != 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the destinations a piece of the side to move can reach in the movement phase.
+	 * @param state packed state
+	 * @param from point the piece is on
+	 * @param allowFlyMode if this game allows flying
+	 * @return mask of empty points the piece can move to
+	 */
+	public static int destinations(long state, int from, boolean allowFlyMode){
+		int empty = emptyPoints(state);
+		return canFly(state, sideToMove(state), allowFlyMode) ? empty : BoardTables.ADJACENT_MASK[from] & empty;
+	}
+
+	/**
+	 * Converts a state to a 24 character string in the same format the debug GameBoard constructor takes.
+	 * @param state packed state
+	 * @return board string
+	 */
+	public static String toString(long state){
+		StringBuilder sb = new StringBuilder(POINTS);
+		int player1 = occupancy(state, SIDE_PLAYER1);
+		int player2 = occupancy(state, SIDE_PLAYER2);
+		for (int point = 0; point < POINTS; point++){
+			if ((player1 & (1 << point)) != 0){
+				sb.append(GameBoard.PLAYER1);
+			} else if ((player2 & (1 << point)) != 0){
+				sb.append(GameBoard.PLAYER2);
+			} else {
+				sb.append(GameBoard.EMPTY);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads a state from a 24 character board string, in the format toString() writes.
+	 * @param board board string, one PLAYER1, PLAYER2 or EMPTY character per point
+	 * @param player1InHand pieces player 1 has left to place
+	 * @param player2InHand pieces player 2 has left to place
+	 * @param side side to move
+	 * @return packed state
+	 * @throws IllegalArgumentException if the string is not a valid board
+	 */
+	public static long fromString(String board, int player1InHand, int player2InHand, int side){
+		if (board.length() != POINTS){
+			throw new IllegalArgumentException("Board string must be "+POINTS+" characters long: "+board);
+		}
+		int player1 = 0, player2 = 0;
+		for (int point = 0; point < POINTS; point++){
+			switch (board.charAt(point)){
+			case GameBoard.PLAYER1:
+				player1 |= 1 << point;
+				break;
+			case GameBoard.PLAYER2:
+				player2 |= 1 << point;
+				break;
+			case GameBoard.EMPTY:
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown piece '"+board.charAt(point)+"' in board string: "+board);
+			}
+		}
+		return pack(player1, player2, player1InHand, player2InHand, side);
+	}
+}
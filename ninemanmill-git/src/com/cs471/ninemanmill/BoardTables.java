@@ -0,0 +1,76 @@
+package com.cs471.ninemanmill;
+
+/**
+ * Lookup tables describing the geometry of the board: which points form mill lines, and which points are adjacent to each other.
+ * They are built once when the class is loaded so mill detection and move generation don't need to redo the ring/position modular arithmetic on every call.
+ *
+ * All tables are indexed by point, using the same R*8+P indexing as BitBoard.index(). The tables are shared and must never be modified.
+ * @author Michael Perez
+ *
+ */
+public final class BoardTables {
+	/** Mask of each of the 16 mill lines: 4 sides on each of the 3 rings, and 4 lines across the rings */
+	public final static int[] MILL_LINES = new int[16];
+	/** For each point, the masks of the two mill lines running through it */
+	public final static int[][] MILLS_AT_POINT = new int[BitBoard.POINTS][2];
+	/** For each point, the two mill lines through it, each given as the two other points on that line */
+	public final static int[][][] MILL_PARTNERS = new int[BitBoard.POINTS][2][2];
+	/** For each point, the list of adjacent points */
+	public final static int[][] ADJACENT = new int[BitBoard.POINTS][];
+	/** For each point, the mask of adjacent points */
+	public final static int[] ADJACENT_MASK = new int[BitBoard.POINTS];
+
+	static {
+		int line = 0;
+		for (int r = 0; r <= 2; r++){
+			for (int p = 0; p <= 7; p+=2){
+				//every ring side starts on a corner and ends on the next one
+				MILL_LINES[line++] = bit(r,p) | bit(r,(p+1)%8) | bit(r,(p+2)%8);
+			}
+		}
+		for (int p = 1; p <= 7; p+=2){
+			//lines across the rings on the midsection points
+			MILL_LINES[line++] = bit(0,p) | bit(1,p) | bit(2,p);
+		}
+
+		int[] millCount = new int[BitBoard.POINTS];
+		for (int mill : MILL_LINES){
+			for (int point = 0; point < BitBoard.POINTS; point++){
+				if ((mill & (1 << point)) == 0) continue;
+				int partners = mill & ~(1 << point);
+				MILL_PARTNERS[point][millCount[point]][0] = Integer.numberOfTrailingZeros(partners);
+				MILL_PARTNERS[point][millCount[point]][1] = 31 - Integer.numberOfLeadingZeros(partners);
+				MILLS_AT_POINT[point][millCount[point]++] = mill;
+			}
+		}
+
+		for (int r = 0; r <= 2; r++){
+			for (int p = 0; p <= 7; p++){
+				int adjacent = bit(r,(p+1)%8) | bit(r,(p+7)%8);
+				if (p % 2 == 1){
+					//midsection pieces can also move between rings
+					if (r > 0) adjacent |= bit(r-1,p);
+					if (r < 2) adjacent |= bit(r+1,p);
+				}
+				int point = BitBoard.index(r,p);
+				ADJACENT_MASK[point] = adjacent;
+				ADJACENT[point] = new int[Integer.bitCount(adjacent)];
+				int i = 0;
+				for (int bits = adjacent; bits != 0; bits &= bits - 1){
+					ADJACENT[point][i++] = Integer.numberOfTrailingZeros(bits);
+				}
+			}
+		}
+	}
+
+	private BoardTables(){
+		//tables only
+	}
+
+	/**
+	 * Single bit mask of a ring and position.
+	 */
+	private static int bit(int R, int P){
+		return 1 << BitBoard.index(R,P);
+	}
+}
@@ -0,0 +1,94 @@
+package com.cs471.ninemanmill;
+
+/**
+ * Reads the values of the command line options of the offline tools, so each of them only has to list its options.
+ * @author Michael Perez
+ *
+ */
+final class CommandLine {
+	private CommandLine(){
+	}
+
+	/**
+	 * Gets the value that follows an option.
+	 * @param args command line arguments
+	 * @param i index of the value, one past the option
+	 * @return the value
+	 * @throws IllegalArgumentException if the option is the last argument
+	 */
+	static String value(String[] args, int i){
+		return value(args, i, args[i - 1]);
+	}
+
+	/**
+	 * Gets one of the values that follow an option that takes several.
+	 * @param args command line arguments
+	 * @param i index of the value
+	 * @param option the option the value belongs to, named if it is missing
+	 * @return the value
+	 * @throws IllegalArgumentException if there are no arguments left
+	 */
+	static String value(String[] args, int i, String option){
+		if (i >= args.length){
+			throw new IllegalArgumentException("Missing a value after "+option);
+		}
+		return args[i];
+	}
+
+	/**
+	 * Gets the whole number that follows an option.
+	 * @param args command line arguments
+	 * @param i index of the value, one past the option
+	 * @return the number
+	 * @throws IllegalArgumentException if the value is missing or isn't a number
+	 */
+	static int intValue(String[] args, int i){
+		return intValue(args, i, args[i - 1]);
+	}
+
+	/**
+	 * Gets one of the whole numbers that follow an option that takes several.
+	 * @param args command line arguments
+	 * @param i index of the value
+	 * @param option the option the value belongs to, named if it is missing or bad
+	 * @return the number
+	 * @throws IllegalArgumentException if the value is missing or isn't a number
+	 */
+	static int intValue(String[] args, int i, String option){
+		try {
+			return Integer.parseInt(value(args, i, option).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad number after "+option+": "+args[i]);
+		}
+	}
+
+	/**
+	 * Reads a whole number that is an argument of its own, not the value of an option, like a depth.
+	 * @param argument the argument
+	 * @param name what the number is, named if it is bad
+	 * @return the number
+	 * @throws IllegalArgumentException if the argument isn't a number
+	 */
+	static int intArgument(String argument, String name){
+		try {
+			return Integer.parseInt(argument.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad "+name+": "+argument);
+		}
+	}
+
+	/**
+	 * Gets the long number that follows an option, like a time in ms.
+	 * @param args command line arguments
+	 * @param i index of the value, one past the option
+	 * @return the number
+	 * @throws IllegalArgumentException if the value is missing or isn't a number
+	 */
+	static long longValue(String[] args, int i){
+		try {
+			return Long.parseLong(value(args, i).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad number after "+args[i - 1]+": "+args[i]);
+		}
+	}
+}
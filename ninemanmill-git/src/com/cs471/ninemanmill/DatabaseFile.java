@@ -0,0 +1,85 @@
+package com.cs471.ninemanmill;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads and writes the files of precomputed position data, like the endgame tablebase. These can be hundreds of megabytes, so they are never read in:
+ * a file is memory mapped, and the operating system only pages in the parts of it a game actually looks at. Lookups read straight from the mapping without copying.
+ *
+ * A file has a 12 byte header: a magic number saying what kind of data it holds, a number describing the data (like the material of a tablebase table),
+ * and the length of the data. The data follows the header, and how it is indexed is up to the class that uses it.
+ * @author Michael Perez
+ *
+ */
+public final class DatabaseFile {
+	private final static int HEADER_BYTES = 12;
+
+	private DatabaseFile(){
+		//static methods only
+	}
+
+	/**
+	 * Maps the data of a file, read only. The mapping stays valid after this returns, as long as the buffer is used.
+	 * @param file file to map
+	 * @param magic magic number the file has to start with
+	 * @param info number describing the data the file has to have
+	 * @return buffer of the data, with index 0 at the first byte after the header and the data's length as its capacity
+	 * @throws IOException if the file can't be read, doesn't have the header expected, or is not as long as its header says
+	 */
+	public static ByteBuffer map(File file, int magic, int info) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			if (channel.size() < HEADER_BYTES){
+				throw new IOException(file+" is too short to have a header");
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (mapped.getInt(0) != magic || mapped.getInt(4) != info){
+				throw new IOException(file+" does not have the header expected");
+			}
+			if (mapped.getInt(8) != channel.size() - HEADER_BYTES){
+				throw new IOException(file+" should have "+mapped.getInt(8)+" bytes of data, not "+(channel.size() - HEADER_BYTES));
+			}
+			mapped.position(HEADER_BYTES);
+			return mapped.slice();
+		} finally {
+			in.close(); //the mapping doesn't need the file to stay open
+		}
+	}
+
+	/**
+	 * Writes a file, replacing it if it exists. Its directory is made if it doesn't exist.
+	 * @param file file to write
+	 * @param magic magic number of the kind of data
+	 * @param info number describing the data
+	 * @param data the data
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(File file, int magic, int info, byte[] data) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()){
+			throw new IOException("Could not make "+directory);
+		}
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(0);
+			FileChannel channel = out.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(magic).putInt(info).putInt(data.length).flip();
+			while (header.hasRemaining()){
+				channel.write(header);
+			}
+			ByteBuffer body = ByteBuffer.wrap(data);
+			while (body.hasRemaining()){
+				channel.write(body);
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package com.cs471.ninemanmill;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the evaluation weights offline, the Texel way. First the AI plays itself, and every quiet position of those games (no mill can be closed by either side)
+ * is kept with how the game ended for the side to move: 1 for a win, 0.5 for a draw and 0 for a loss. The evaluation of a position is turned into an expected result
+ * with a logistic curve, and the weights are changed one at a time, keeping every change that makes the expected results closer to the real ones, until no change helps.
+ * The games are played and the positions scored on several threads. The weights found are written in the format EvalWeights reads.
+ *
+ * Usage: java com.cs471.ninemanmill.EvalTuner [options]
+ *  -games N     self-play games to take positions from (default 100)
+ *  -time ms     time budget of each AI move (default 50)
+ *  -level N     AI difficulty that plays the games and whose evaluation is tuned (default 4, extreme)
+ *  -random N    plies at the start of each game played at random, so the games are different (default 8)
+ *  -maxplies N  plies before a game is called a draw (default 300)
+ *  -passes N    most passes over the weights (default 20)
+ *  -threads N   threads to play games and score positions on (default one per processor)
+ *  -in file     weights to start from (default the built in ones)
+ *  -out file    file to write the weights to (default EvalWeights.DEFAULT_FILE)
+ * @author Michael Perez
+ *
+ */
+public class EvalTuner {
+	private final static double MIN_STEP = 0.125; //smallest change tried to a weight
+	private int games = 100;
+	private long timeBudget = 50;
+	private int level = AIPlayer.AI_IMPOSSIBLE;
+	private int randomPlies = 8;
+	private int maxPlies = 300;
+	private int passes = 20;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private File in;
+	private File file = new File(EvalWeights.DEFAULT_FILE);
+	private final List<GameBoard> positions = new ArrayList<GameBoard>(); //quiet positions of the games
+	private final List<Double> results = new ArrayList<Double>(); //result of each position's game for its side to move
+	private ExecutorService pool;
+	private Searcher[] evaluators; //one for each slice of the positions, the evaluation is what is tuned
+
+	/**
+	 * Runs the tuner from the command line.
+	 * @param args options, see the class description
+	 */
+	public static void main(String[] args){
+		EvalTuner tuner = new EvalTuner();
+		try {
+			tuner.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java com.cs471.ninemanmill.EvalTuner [-games N] [-time ms] [-level N] [-random N] [-maxplies N] [-passes N] [-threads N] [-in file] [-out file]");
+			System.exit(1);
+		}
+		try {
+			tuner.run();
+		} catch (IOException e) {
+			System.err.println("Could not read or write the weights: "+e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads the options.
+	 * @param args command line arguments
+	 * @throws IllegalArgumentException if an argument can't be understood
+	 */
+	private void parseArguments(String[] args){
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("-games")){
+				games = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-time")){
+				timeBudget = CommandLine.longValue(args, ++i);
+			} else if (args[i].equals("-level")){
+				level = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-random")){
+				randomPlies = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-maxplies")){
+				maxPlies = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-passes")){
+				passes = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-threads")){
+				threads = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-in")){
+				in = new File(CommandLine.value(args, ++i));
+			} else if (args[i].equals("-out")){
+				file = new File(CommandLine.value(args, ++i));
+			} else {
+				throw new IllegalArgumentException("Unknown option "+args[i]);
+			}
+		}
+		if (games < 1 || threads < 1 || maxPlies < 1 || passes < 0 || randomPlies < 0 || level < AIPlayer.AI_MEDIUM || level > AIPlayer.AI_IMPOSSIBLE){
+			throw new IllegalArgumentException("-games, -threads and -maxplies must be at least 1, -passes and -random at least 0, and -level from 2 to 4");
+		}
+	}
+
+	/**
+	 * Plays the games, tunes the weights on their positions, then writes them.
+	 * @throws IOException if the starting weights can't be read or the tuned ones can't be written
+	 */
+	private void run() throws IOException {
+		EvalWeights weights = (in != null) ? EvalWeights.load(in) : new EvalWeights();
+		System.out.println("Playing "+games+" games on "+threads+" threads");
+		pool = Executors.newFixedThreadPool(threads);
+		try {
+			playGames();
+			if (positions.isEmpty()){
+				System.out.println("The games had no quiet positions, nothing to tune");
+				return;
+			}
+			evaluators = new Searcher[threads];
+			for (int i = 0; i < threads; i++){
+				evaluators[i] = new Searcher(GameBoard.PLAYER1, level, 1, 1); //only evaluates, so it needs no real transposition table
+			}
+			double scale = fitScale(weights);
+			System.out.println(positions.size()+" positions, logistic scale "+scale);
+			weights = tune(weights, scale);
+		} finally {
+			pool.shutdownNow();
+		}
+		weights.store(file);
+		System.out.println("Wrote the weights to "+file+":");
+		System.out.print(weights);
+	}
+
+	/**
+	 * Plays every game on the pool and keeps their quiet positions.
+	 */
+	private void playGames(){
+		List<SelfPlayGame> selfPlay = new ArrayList<SelfPlayGame>(games);
+		for (int g = 0; g < games; g++){
+			selfPlay.add(new SelfPlayGame(g));
+		}
+		HeadlessGame.playAll(pool, selfPlay);
+	}
+
+	/**
+	 * Adds the quiet positions of a finished game.
+	 * @param states BitBoard state of each position
+	 * @param count number of positions
+	 * @param result result of the game
+	 */
+	private synchronized void addGame(long[] states, int count, int result){
+		for (int i = 0; i < count; i++){
+			GameBoard board = GameBoard.fromBitBoard(states[i], true);
+			positions.add(board);
+			if (result == GameState.RESULT_NONE){
+				results.add(0.5);
+			} else {
+				results.add((result == board.getTurn()) ? 1.0 : 0.0);
+			}
+		}
+	}
+
+	/**
+	 * Finds the scale of the logistic curve that fits the starting weights best, so the tuning changes the weights and not just how big the scores are.
+	 * @param weights starting weights
+	 * @return scale the evaluation is multiplied by before the logistic curve
+	 */
+	private double fitScale(EvalWeights weights){
+		double best = 1, bestError = Double.MAX_VALUE;
+		for (double scale = 0.001; scale < 4; scale *= 1.25){
+			double error = error(weights, scale);
+			if (error < bestError){
+				best = scale;
+				bestError = error;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Changes the weights one at a time by a step up or down, keeping every change that lowers the error. When a whole pass changes nothing, the step is halved.
+	 * @param weights starting weights
+	 * @param scale scale of the logistic curve
+	 * @return the best weights found
+	 */
+	private EvalWeights tune(EvalWeights weights, double scale){
+		double bestError = error(weights, scale);
+		System.out.println("Starting error "+bestError);
+		double step = 1;
+		for (int pass = 1; pass <= passes && step >= MIN_STEP; pass++){
+			boolean improved = false;
+			for (int i = 0; i < EvalWeights.COUNT; i++){
+				for (int direction = 1; direction >= -1; direction -= 2){
+					EvalWeights changed = new EvalWeights(weights);
+					changed.set(i, weights.get(i) + direction * step);
+					double error = error(changed, scale);
+					if (error < bestError){
+						weights = changed;
+						bestError = error;
+						improved = true;
+						break; //no need to try the other way
+					}
+				}
+			}
+			System.out.println("Pass "+pass+": step "+step+", error "+bestError);
+			if (!improved){
+				step /= 2;
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Gets the mean squared difference between the results the evaluation expects and the real ones, scoring slices of the positions on the pool.
+	 * @param weights weights to evaluate with
+	 * @param scale scale of the logistic curve
+	 * @return mean squared error over all positions
+	 */
+	private double error(final EvalWeights weights, final double scale){
+		List<Callable<Double>> slices = new ArrayList<Callable<Double>>(evaluators.length);
+		final int size = (positions.size() + evaluators.length - 1) / evaluators.length;
+		for (int i = 0; i < evaluators.length; i++){
+			final Searcher evaluator = evaluators[i];
+			final int start = i * size, end = Math.min(positions.size(), start + size);
+			slices.add(new Callable<Double>(){
+				@Override
+				public Double call(){
+					evaluator.setWeights(weights);
+					double sum = 0;
+					for (int j = start; j < end; j++){
+						GameBoard board = positions.get(j);
+						Team mover = (board.getTurn() == GameBoard.PLAYER1_TURN) ? board.getTeam1() : board.getTeam2();
+						Team other = (board.getTurn() == GameBoard.PLAYER1_TURN) ? board.getTeam2() : board.getTeam1();
+						double expected = 1 / (1 + Math.exp(-scale * evaluator.evaluate(board, mover, other, board.isPlacementPhase())));
+						double difference = results.get(j) - expected;
+						sum += difference * difference;
+					}
+					return sum;
+				}
+			});
+		}
+		double sum = 0;
+		try {
+			for (Future<Double> slice : pool.invokeAll(slices)){
+				sum += slice.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Double.MAX_VALUE;
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Scoring positions failed", e.getCause());
+		}
+		return sum / positions.size();
+	}
+
+	/**
+	 * Checks if a position is quiet: the side to move can't close a mill, and neither could the opponent if it were its turn.
+	 * The evaluation doesn't know about mills that are about to be closed, so only quiet positions say anything about it.
+	 * @param board position to check
+	 * @param moves buffer for the moves
+	 * @return true if the position is quiet
+	 */
+	private static boolean isQuiet(GameBoard board, int[] moves){
+		int count = board.generateLegalMoves(moves, 0);
+		if (count == 0){
+			return false; //the game is over
+		}
+		for (int i = 0; i < count; i++){
+			if (Move.capture(moves[i]) != Move.NO_POINT){
+				return false;
+			}
+		}
+		long state = board.toBitBoard();
+		return BitBoard.millThreats(state, BitBoard.sideToMove(state) ^ 1, board.allowFlying()) == 0;
+	}
+
+	/**
+	 * One self-play game, played on a pool thread.
+	 */
+	private class SelfPlayGame implements Callable<String>, HeadlessGame.PlyListener {
+		private final Random random;
+		private final int[] moves = new int[GameBoard.MAX_MOVES];
+		private final long[] states = new long[maxPlies]; //BitBoard state of each quiet position
+		private int kept; //quiet positions kept so far
+
+		SelfPlayGame(int number){
+			random = new Random(number);
+		}
+
+		/**
+		 * Plays the game to the end, or until it is a draw by the ply limit, and keeps its quiet positions.
+		 * @return short description of the game
+		 */
+		@Override
+		public String call(){
+			GameBoard board = new GameBoard(true);
+			int ply;
+			for (ply = 0; ply < randomPlies && board.getResult() == GameState.RESULT_NONE; ply++){
+				try {
+					board.playMove(moves[random.nextInt(board.generateLegalMoves(moves, 0))]);
+				} catch (PiecePlacementException e) {
+					throw new IllegalStateException("A generated move was illegal", e);
+				}
+			}
+			AIPlayer player1 = HeadlessGame.newPlayer(GameBoard.PLAYER1, level);
+			AIPlayer player2 = HeadlessGame.newPlayer(GameBoard.PLAYER2, level);
+			player1.setOpeningBook(null); //the random start makes the games different, the book would make them the same again
+			player2.setOpeningBook(null);
+			HeadlessGame game = new HeadlessGame(player1, timeBudget, player2, timeBudget);
+			int result = game.play(board, maxPlies - ply, this);
+			addGame(states, kept, result);
+			return game+" (and "+ply+" random plies first), "+kept+" quiet positions";
+		}
+
+		/**
+		 * Keeps the position the turn is played in if it is quiet.
+		 */
+		@Override
+		public int turnPicked(GameBoard board, int ply, int move, long nanos){
+			if (isQuiet(board, moves)){
+				states[kept++] = board.toBitBoard();
+			}
+			return move;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.cs471.ninemanmill;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.ini4j.Wini;
+
+/**
+ * The weights of the AI's evaluation, which say how much each thing the evaluation counts is worth. The game reads them from DEFAULT_FILE,
+ * next to nmm_settings.ini, so they can be changed without building the game again. EvalTuner finds better ones and writes them to that file.
+ * A weight that isn't in the file keeps its default, and there is no need for the file at all: the defaults are the weights the AI always used.
+ *
+ * The file is an ini file with a [Placement] section for evalBoardPlace() and a [Movement] section for evalBoardMove(), for example:
+ *   [Placement]
+ *   millpiece = 20
+ * A side with no moves has lost, which is a rule and not a weight, so it is always scored as a loss.
+ * @author Michael Perez
+ *
+ */
+public class EvalWeights {
+	public final static String DEFAULT_FILE = "nmm_weights.ini"; //file the game reads the weights from, next to nmm_settings.ini
+	public final static int PLACE_MILL_PIECE = 0; //own piece in a mill, during placement
+	public final static int PLACE_ENEMY_MILL_PIECE = 1; //opponent piece in a mill, during placement (subtracted)
+	public final static int PLACE_CORNER = 2; //piece on a corner point
+	public final static int PLACE_MIDSECTION = 3; //piece on the middle point of a side
+	public final static int PLACE_OPEN_TWO = 4; //two pieces in a line with the third point empty
+	public final static int MOVE_PIECE = 5; //piece on the board, during movement
+	public final static int MOVE_MOBILITY = 6; //move to an adjacent point, only counted on hard and extreme
+	public final static int MOVE_BLOCKED = 7; //the opponent has no moves
+	public final static int MOVE_MILL_PIECE = 8; //piece in a mill, during movement
+	public final static int MOVE_OPEN_TWO = 9; //two pieces in a line with the third point empty, during movement
+	public final static int COUNT = 10;
+	private final static String[] SECTIONS = {"Placement", "Placement", "Placement", "Placement", "Placement", "Movement", "Movement", "Movement", "Movement", "Movement"};
+	private final static String[] NAMES = {"millpiece", "enemymillpiece", "corner", "midsection", "opentwo", "piece", "mobility", "blocked", "millpiece", "opentwo"};
+	private final static double[] DEFAULTS = {20, 15, 1, 2, 0, 1.5, 1, 10, 0, 0};
+	private static EvalWeights defaultWeights; //loaded the first time getDefault() is called
+
+	private final double[] values;
+
+	/**
+	 * Makes a set of weights with the default values.
+	 */
+	public EvalWeights(){
+		values = DEFAULTS.clone();
+	}
+
+	/**
+	 * Copy constructor.
+	 * @param weights weights to copy
+	 */
+	public EvalWeights(EvalWeights weights){
+		values = weights.values.clone();
+	}
+
+	/**
+	 * Gets the weights the game uses, reading them from DEFAULT_FILE the first time. If there is no file, or it can't be read, the defaults are used.
+	 * @return the shared weights. Don't change them, make a copy instead.
+	 */
+	public static synchronized EvalWeights getDefault(){
+		if (defaultWeights == null){
+			File file = new File(DEFAULT_FILE);
+			try {
+				defaultWeights = file.isFile() ? load(file) : new EvalWeights();
+			} catch (IOException e) {
+				System.err.println("Could not load the evaluation weights: "+e.getMessage());
+				defaultWeights = new EvalWeights();
+			}
+		}
+		return defaultWeights;
+	}
+
+	/**
+	 * Reads a weights file.
+	 * @param file file to read
+	 * @return the weights, with the defaults for any the file doesn't have
+	 * @throws IOException if the file can't be read, or a weight is not a number
+	 */
+	public static EvalWeights load(File file) throws IOException {
+		Wini ini = new Wini(file);
+		EvalWeights weights = new EvalWeights();
+		for (int i = 0; i < COUNT; i++){
+			String value = ini.get(SECTIONS[i], NAMES[i]);
+			if (value != null){
+				try {
+					weights.values[i] = Double.parseDouble(value.trim());
+				} catch (NumberFormatException e) {
+					throw new IOException(SECTIONS[i]+" "+NAMES[i]+" in "+file+" is not a number: "+value);
+				}
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Writes the weights to a file, replacing it if it exists.
+	 * @param file file to write
+	 * @throws IOException if the file can't be written
+	 */
+	public void store(File file) throws IOException {
+		Wini ini = new Wini();
+		for (int i = 0; i < COUNT; i++){
+			ini.put(SECTIONS[i], NAMES[i], values[i]);
+		}
+		ini.store(file);
+	}
+
+	/**
+	 * Gets a weight.
+	 * @param weight which weight, like PLACE_MILL_PIECE
+	 * @return its value
+	 */
+	public double get(int weight){
+		return values[weight];
+	}
+
+	/**
+	 * Changes a weight.
+	 * @param weight which weight, like PLACE_MILL_PIECE
+	 * @param value new value
+	 */
+	public void set(int weight, double value){
+		values[weight] = value;
+	}
+
+	/**
+	 * Gets the name of a weight, as it is in the file.
+	 * @param weight which weight, like PLACE_MILL_PIECE
+	 * @return section and name, like "Placement millpiece"
+	 */
+	public static String name(int weight){
+		return SECTIONS[weight]+" "+NAMES[weight];
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < COUNT; i++){
+			sb.append(name(i)).append(" = ").append(values[i]).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -2,8 +2,6 @@ package com.cs471.ninemanmill;
 
 import java.util.ArrayList;
 
-import com.cs471.ninemanmill.uipieces.GamePieceButton;
-
 /**
  * The gameboard class is the backend structure for Nine Men's Morris. It contains all properties of a 'board', or a state of gameplay.
  * The board is represented by a 2D array of characters, with the first index being the Ring (R), and the second one being the Position (P). 
@@ -14,13 +12,15 @@ import com.cs471.ninemanmill.uipieces.GamePieceButton;
  * 
  * Each GameBoard instance has references to two teams, player 1's team and player 2's team. These can be dynamically changed for each instance to make different, fully unique boards that can be modified independently of others.
  * 
+ * The board only knows the rules of the game. It implements GameState, and the UI (or anything else playing a game) reads it and updates itself after each turn.
+ * 
  * @author Michael Perez
  * @author Sasa Rkman
  * @author Melissa Neibaur
  * @author Sean Wright
  * 
  */
-public class GameBoard {
+public class GameBoard implements GameState {
 
 	/* Variables to symbolize teams and empty spaces */
 	public final static char PLAYER1 = '1';
@@ -32,20 +32,24 @@ public class GameBoard {
 	public int CURRENT_TURN;
 	public boolean setupMode;
 	private boolean allowFlyMode; //enabled by default
-	private UINew parent;
 	private char[][] board;
+	private long pieceKey; //Zobrist key of the pieces on the board, kept up to date as pieces are placed, moved and removed
+	//evaluation terms of each BitBoard side, kept up to date with pieceKey so the AI can score a position without looking at the whole board
+	private final int[] occupancy = new int[2]; //mask of the points each side has a piece on
+	private final int[] mobility = new int[2]; //number of moves to an adjacent empty point each side has
+	private final int[] millPieces = new int[2]; //mask of each side's pieces that are in a mill
+	private final int[] openTwos = new int[2]; //lines with two of a side's pieces and the third point empty
 	Team team1;
 	Team team2;
+	public final static int MAX_MOVES = 512; //room a move buffer needs for one position's moves, with a move for every capture of every mill
 	
 	
 
 	/**
 	 * Constructs a new, empty gameboard that has nothing on it. This is the default constructor, and is used when setting up a new game.
-	 * @param attachedUI The UI object this board should attach itself to, allowing it to update the UI when changes this board is made.
 	 * @param allowFlyMode boolean to indicate if this board should allow flying mode when a team is down to three pieces.
 	 */
-	public GameBoard(UINew attachedUI, boolean allowFlyMode) {
-		this.parent = attachedUI;
+	public GameBoard(boolean allowFlyMode) {
 		this.allowFlyMode = allowFlyMode;
 		this.setupMode = true;
 		team1 = new Team(PLAYER1, 9);
@@ -77,8 +81,16 @@ public class GameBoard {
 		team1 = new Team(oldState.team1);
 		team2 = new Team(oldState.team2);
 		CURRENT_TURN = oldState.CURRENT_TURN;
+		pieceKey = oldState.pieceKey;
+		for (int side = 0; side < 2; side++){
+			occupancy[side] = oldState.occupancy[side];
+			mobility[side] = oldState.mobility[side];
+			millPieces[side] = oldState.millPieces[side];
+			openTwos[side] = oldState.openTwos[side];
+		}
 		this.allowFlyMode = oldState.allowFlyMode;
 		this.setupMode = oldState.setupMode;
+		this.gameFinished = oldState.gameFinished;
 	}
 
 	/**
@@ -105,12 +117,39 @@ public class GameBoard {
 			for (int p = 0; p <= 7; p++) {
 				useTeamPiece(initialState.charAt(position));
 				board[r][p] = initialState.charAt(position);
+				if (board[r][p] != EMPTY){
+					togglePiece((board[r][p] == PLAYER1) ? BitBoard.SIDE_PLAYER1 : BitBoard.SIDE_PLAYER2, BitBoard.index(r, p));
+				}
 				////System.out.println("Initializing existing board, setting to ["r + "][" + p + "]" + initialState.charAt(position));
 				position++; //rotate around the ring
 			}
 		}
 	}
 
+	/**
+	 * Builds a board for a BitBoard state, with its hands and whose turn it is. Unlike the debug constructor, this works in any version and sets up the teams,
+	 * so tools can start from any position, not just the start of a game.
+	 * @param state packed BitBoard state
+	 * @param allowFlyMode boolean to indicate if this board should allow flying mode when a team is down to three pieces.
+	 * @return board holding the same position as state
+	 */
+	public static GameBoard fromBitBoard(long state, boolean allowFlyMode){
+		GameBoard board = new GameBoard(allowFlyMode);
+		board.team1.setPiecesRemainingToPlace(BitBoard.inHand(state, BitBoard.SIDE_PLAYER1));
+		board.team2.setPiecesRemainingToPlace(BitBoard.inHand(state, BitBoard.SIDE_PLAYER2));
+		for (int point = 0; point < BitBoard.POINTS; point++){
+			if ((BitBoard.occupancy(state, BitBoard.SIDE_PLAYER1) & (1 << point)) != 0){
+				board.restorePiece(board.team1, point >> 3, point & 7);
+			} else if ((BitBoard.occupancy(state, BitBoard.SIDE_PLAYER2) & (1 << point)) != 0){
+				board.restorePiece(board.team2, point >> 3, point & 7);
+			}
+		}
+		board.CURRENT_TURN = (BitBoard.sideToMove(state) == BitBoard.SIDE_PLAYER1) ? PLAYER1_TURN : PLAYER2_TURN;
+		board.setupMode = BitBoard.isPlacementPhase(state);
+		board.gameFinished = board.getResult() != RESULT_NONE;
+		return board;
+	}
+
 	/** 
 	 * Gets a reference to team1.
 	 * @return Team1
@@ -131,6 +170,102 @@ public class GameBoard {
 		return allowFlyMode;
 	}
 
+	/**
+	 * Gets the Zobrist key of this position, which includes the pieces on the board, the pieces each team has left to place and whose turn it is.
+	 * Two boards with the same key are (almost certainly) the same position, which lets the AI recognize positions it has already searched.
+	 * @return 64 bit Zobrist key of this position
+	 */
+	public long getZobristKey(){
+		return pieceKey ^ Zobrist.state(team1.getPiecesRemainingToPlace(), team2.getPiecesRemainingToPlace(), BitBoard.sideOfTurn(CURRENT_TURN));
+	}
+
+	/**
+	 * Gets the mask of the points a team has a piece on.
+	 * @param team team to look at
+	 * @return occupancy mask, one bit for each BitBoard point
+	 */
+	public int getOccupancy(Team team){
+		return occupancy[sideOf(team)];
+	}
+
+	/**
+	 * Gets how many of a team's pieces are in a mill.
+	 * @param team team to look at
+	 * @return number of pieces in at least one mill
+	 */
+	public int countMillPieces(Team team){
+		return Integer.bitCount(millPieces[sideOf(team)]);
+	}
+
+	/**
+	 * Gets how many lines have two of a team's pieces and the third point empty, which are mills it could close.
+	 * @param team team to look at
+	 * @return number of open two in a rows
+	 */
+	public int countOpenTwos(Team team){
+		return openTwos[sideOf(team)];
+	}
+
+	/**
+	 * Puts a piece on a point or takes it off, and updates the Zobrist key and the evaluation terms for it. Only the two lines through the point
+	 * and the points next to it can change, so this doesn't look at the rest of the board. The board array and the teams are not changed here.
+	 * @param side BitBoard side of the piece
+	 * @param point point it is put on, if it is empty, or taken off
+	 */
+	private void togglePiece(int side, int point){
+		int bit = 1 << point;
+		int[] lines = BoardTables.MILLS_AT_POINT[point];
+		for (int line : lines){
+			openTwos[BitBoard.SIDE_PLAYER1] -= openTwo(BitBoard.SIDE_PLAYER1, line);
+			openTwos[BitBoard.SIDE_PLAYER2] -= openTwo(BitBoard.SIDE_PLAYER2, line);
+		}
+
+		//a piece on the point can move to the empty points next to it, and the pieces next to it can't move there
+		int sign = ((occupancy[side] & bit) == 0) ? 1 : -1;
+		int adjacent = BoardTables.ADJACENT_MASK[point];
+		int empty = BitBoard.FULL_MASK & ~(occupancy[0] | occupancy[1] | bit);
+		mobility[side] += sign * (Integer.bitCount(adjacent & empty) - Integer.bitCount(adjacent & occupancy[side]));
+		mobility[side ^ 1] -= sign * Integer.bitCount(adjacent & occupancy[side ^ 1]);
+		occupancy[side] ^= bit;
+		pieceKey ^= Zobrist.piece(side, point);
+
+		//only the pieces on the lines through the point can have joined or left a mill
+		int own = occupancy[side];
+		int affected = lines[0] | lines[1];
+		int inMill = millPieces[side] & ~affected;
+		for (int pieces = own & affected; pieces != 0; pieces &= pieces - 1){
+			int[] mills = BoardTables.MILLS_AT_POINT[Integer.numberOfTrailingZeros(pieces)];
+			if ((own & mills[0]) == mills[0] || (own & mills[1]) == mills[1]){
+				inMill |= pieces & -pieces;
+			}
+		}
+		millPieces[side] = inMill;
+
+		for (int line : lines){
+			openTwos[BitBoard.SIDE_PLAYER1] += openTwo(BitBoard.SIDE_PLAYER1, line);
+			openTwos[BitBoard.SIDE_PLAYER2] += openTwo(BitBoard.SIDE_PLAYER2, line);
+		}
+	}
+
+	/**
+	 * Checks if a line has two of a side's pieces and an empty point.
+	 * @param side BitBoard side
+	 * @param line mask of the line's three points
+	 * @return 1 if it does, otherwise 0
+	 */
+	private int openTwo(int side, int line){
+		return (Integer.bitCount(occupancy[side] & line) == 2 && (occupancy[side ^ 1] & line) == 0) ? 1 : 0;
+	}
+
+	/**
+	 * Gets the BitBoard side a team plays as, for looking up Zobrist keys.
+	 * @param team team to get the side of
+	 * @return BitBoard.SIDE_PLAYER1 or BitBoard.SIDE_PLAYER2
+	 */
+	private static int sideOf(Team team){
+		return (team.getSymbol() == PLAYER1) ? BitBoard.SIDE_PLAYER1 : BitBoard.SIDE_PLAYER2;
+	}
+
 	/**
 	 * Used for building a debugging board. This is used to properly decrement the number of pieces a team has as it builds the board.
 	 * @param teamSymbol The symbol that represents the team. This is how the team is looked up so values are not hard-coded.
@@ -176,61 +311,12 @@ public class GameBoard {
 		 * board[R,P] 
 		 * R is the ring the we are looking at (0 outermost,1,2 innermost)
 		 * P is the number starting from the top left, going clockwise 0 1 2 3 4 5 6 7
+		 * Each point has exactly two lines through it, so check the two other points of each line from the lookup table.
 		 */
-		//System.out.println("Checking for team "+team.getSymbol()+"mill at "+R+","+P);
-		
-		//----GET P-1, P-2, R-1 mod their sizes; must do rollunder checking cause of java.
-		int pMinusOneModEight = (P - 1) % 8;
-		if (pMinusOneModEight < 0)
-		{
-		    pMinusOneModEight += 8;
-		}
-		int pMinusTwoModEight = (P - 2) % 8;
-		if (pMinusTwoModEight < 0)
-		{
-		    pMinusTwoModEight += 8;
-		}
-		int rMinusOneModThree = (R - 1) % 3;
-		if (rMinusOneModThree < 0)
-		{
-		    rMinusOneModThree += 3;
-		}
-		
-		// ---------------------------CORNER PIECE-----------------------------------------
-
-		if (P % 2 == 0) {
-			/* Check +1 +2 and -1 -2 [all mod 8] since this is a corner square */
-			/* I'm sure there's a better way to do this */
-			if (checkForTeamPiece(team, R, ((P + 1) % 8))) {
-				if (checkForTeamPiece(team, R, ((P + 2) % 8))) {
-					//System.out.println("Mill on P+1 P+2");
-					return true;
-				}
-			}
-			if (checkForTeamPiece(team, R, pMinusOneModEight)) { /* P-1 */
-				if (checkForTeamPiece(team, R, pMinusTwoModEight)) { /* P-2 */
-					//System.out.println("Mill on P-1 P-2");
-					return true;
-				}
-			}
-			return false;
-		} else {
-			// -----------------------------MIDSECTION PIECE-----------------------------------------
-			/* Check up/down, left/right */
-			if (checkForTeamPiece(team, R, ((P + 1) % 8))) { /* Square After */
-				if (checkForTeamPiece(team, R, pMinusOneModEight)) { /* Square before in the ring*/
-					//System.out.println("Mill on midsection and corners");
-					return true;
-				}
-			}
-			if (checkForTeamPiece(team, rMinusOneModThree, P)) { /* Ring Left if possible */
-				if (checkForTeamPiece(team, ((R + 1) % 3), P)) { /* Ring Right if possible */
-					//System.out.println("Mill on rings");
-					return true;
-				}
-			}
-			return false;
-		}
+		char symbol = team.getSymbol();
+		int[][] lines = BoardTables.MILL_PARTNERS[BitBoard.index(R, P)];
+		return (board[lines[0][0] >> 3][lines[0][0] & 7] == symbol && board[lines[0][1] >> 3][lines[0][1] & 7] == symbol)
+				|| (board[lines[1][0] >> 3][lines[1][0] & 7] == symbol && board[lines[1][1] >> 3][lines[1][1] & 7] == symbol);
 	}
 
 	/**
@@ -273,6 +359,7 @@ public class GameBoard {
 		
 		team.usePiece(R,P);
 		board[R][P] = team.getSymbol();
+		togglePiece(sideOf(team), BitBoard.index(R, P));
 		return detectNineManMill(team, R, P);
 	}
 	
@@ -282,80 +369,103 @@ public class GameBoard {
 	 * @return Array of moves
 	 */
 	public ArrayList<Move> getAllMoves(Team team){
-		ArrayList<Move> possibleMoves = new ArrayList<Move>();
-		if (!allowFlyMode || team.teamPieces.size() > 3) {
-		Move m1, m2, m3, m4;
-
-		for(int r=0; r<=2;r++)
-			for(int p=0; p<=7;p++){
-				int pMinusOneModEight = (p - 1) % 8;
-				if (pMinusOneModEight < 0)
-				{
-				    pMinusOneModEight += 8;
-				}
-				int rMinusOneModEight = (r - 1) % 8;
-				if (rMinusOneModEight < 0)
-				{
-				    rMinusOneModEight += 8;
-				}
-				if(board[r][p]==team.getSymbol()){
-					// We found one of our team pieces 
-					// Find adjacent moves 
-					if (p % 2 == 0){
-						// Corner Piece 
-						m1 = new Move(team, r,p,r,(p+1)%8);
-						m2 = new Move(team, r,p,r,pMinusOneModEight);
-						if(board[r][(p+1)%8]==EMPTY) possibleMoves.add(m1);
-						if(board[r][pMinusOneModEight]==EMPTY) possibleMoves.add(m2);
-					} 
-					else {
-					//	 Midsection piece 
-						m1 = new Move(team, r,p,r,(p+1)%8);
-						m2 = new Move(team, r,p,r,pMinusOneModEight);
-						if(board[r][(p+1)%8]==EMPTY) possibleMoves.add(m1);
-						if(board[r][pMinusOneModEight]==EMPTY) possibleMoves.add(m2);
-						
-						switch(r){
-						case 0:
-							m3 = new Move(team, r,p,(r+1),p);
-							if(board[r+1][p]==EMPTY) possibleMoves.add(m3);
-							break;
-							
-						case 1:
-							m3 = new Move(team, r,p,(r+1),p);
-							m4 = new Move(team, r,p,(r-1),p);
-							if(board[r+1][p]==EMPTY) possibleMoves.add(m3);
-							if(board[r-1][p]==EMPTY) possibleMoves.add(m4);
-							break;
-							
-						case 2:
-							m3 = new Move(team, r,p,(r-1),p);
-							if(board[r-1][p]==EMPTY) possibleMoves.add(m3);
-							break;
-							
-						default:
-							//System.err.println("Ring error");
-							break;
-						}
+		int[] moves = new int[MAX_MOVES];
+		int count = generateMovement(team, moves, 0);
+		ArrayList<Move> possibleMoves = new ArrayList<Move>(count);
+		for (int i = 0; i < count; i++){
+			int from = Move.from(moves[i]), to = Move.to(moves[i]);
+			possibleMoves.add(new Move(team, from >> 3, from & 7, to >> 3, to & 7));
+		}
+		return possibleMoves;
+	}
+	
+	/**
+	 * Writes the encoded moves a team can make next into a buffer. Teams with pieces left to place get placements, other teams get their movement (or flying) moves.
+	 * None of the moves have a capture set. This makes no objects, so the AI can call it at every node of its search.
+	 * @param team Team to get moves for
+	 * @param moves Buffer to write the encoded moves into. It needs MAX_MOVES free slots after start.
+	 * @param start Index of the first slot to write to
+	 * @return Index after the last move written
+	 */
+	public int generateMoves(Team team, int[] moves, int start){
+		if (team.getPiecesRemainingToPlace() > 0){
+			return generatePlacements(moves, start);
+		}
+		return generateMovement(team, moves, start);
+	}
+	
+	/**
+	 * Writes an encoded placement on every empty point into a buffer.
+	 * @param moves Buffer to write the encoded placements into
+	 * @param start Index of the first slot to write to
+	 * @return Index after the last placement written
+	 */
+	public int generatePlacements(int[] moves, int start){
+		int end = start;
+		for (int point = 0; point < BitBoard.POINTS; point++){
+			if (board[point >> 3][point & 7] == EMPTY){
+				moves[end++] = Move.encode(Move.NO_POINT, point, Move.NO_POINT);
+			}
+		}
+		return end;
+	}
+	
+	/**
+	 * Writes the encoded movement moves of a team into a buffer. A team that is down to three pieces can move to every empty point if flying is allowed.
+	 * @param team Team to get moves for
+	 * @param moves Buffer to write the encoded moves into
+	 * @param start Index of the first slot to write to
+	 * @return Index after the last move written
+	 */
+	public int generateMovement(Team team, int[] moves, int start){
+		int end = start;
+		int pieces = team.teamPieces.size();
+		if (!allowFlyMode || pieces > 3) {
+			for (int i = 0; i < pieces; i++){
+				// For each of our team pieces, add a move to every empty adjacent point
+				GamePiece piece = team.teamPieces.get(i);
+				int from = BitBoard.index(piece.getR(), piece.getP());
+				for (int adjacent : BoardTables.ADJACENT[from]){
+					if (board[adjacent >> 3][adjacent & 7] == EMPTY){
+						moves[end++] = Move.encode(from, adjacent, Move.NO_POINT);
 					}
 				}
 			}
-		} else if (team.teamPieces.size() == 3) {
+		} else if (pieces == 3) {
 			// fly mode
 			// for all pieces, add moves for every piece to every empty position.
-			for (GamePiece piece : team.teamPieces) {
-				for (int r = 0; r <= 2; r++) {
-					for (int p = 0; p <= 7; p++) {
-						// for all rings and all positions
-						if (board[r][p] == EMPTY) {
-							possibleMoves.add(new Move(team, piece.getR(),
-									piece.getP(), r, p));
-						}
+			for (int i = 0; i < pieces; i++){
+				GamePiece piece = team.teamPieces.get(i);
+				int from = BitBoard.index(piece.getR(), piece.getP());
+				for (int point = 0; point < BitBoard.POINTS; point++){
+					if (board[point >> 3][point & 7] == EMPTY){
+						moves[end++] = Move.encode(from, point, Move.NO_POINT);
 					}
 				}
 			}
 		}
-		return possibleMoves;
+		return end;
+	}
+	
+	/**
+	 * Counts the movement moves of a team, without making a list of them. The count is kept up to date as pieces are placed, moved and removed, so this doesn't look at the board.
+	 * @param team Team to count moves for
+	 * @return Number of moves getAllMoves() would return
+	 */
+	public int countMovement(Team team){
+		int pieces = team.teamPieces.size();
+		if (allowFlyMode && pieces <= 3){
+			return (pieces == 3) ? 3 * countEmpty() : 0;
+		}
+		return mobility[sideOf(team)];
+	}
+	
+	/**
+	 * Counts the empty points on the board.
+	 * @return number of empty points
+	 */
+	private int countEmpty(){
+		return BitBoard.POINTS - Integer.bitCount(occupancy[0] | occupancy[1]);
 	}
 	
 	/**
@@ -365,36 +475,250 @@ public class GameBoard {
 	 * @param P The position on the ring that the piece is being removed.
 	 */
 	public void removePiece(Team team, int R, int P){
+		if (board[R][P] == team.getSymbol()){
+			togglePiece(sideOf(team), BitBoard.index(R, P));
+		}
 		board[R][P]=EMPTY;
 		team.removePiece(R,P);
 	}
 	
 	/**
 	 * Moves a piece on the board to an adjacent square specified by the direction.
-	 * @param team The team of the piece that is moving. 
-	 * @param Rs The ring the initial piece is on.
-	 * @param Ps The position the initial piece is at in a ring.
-	 * @param Rd The destination ring where the piece will be moved to.
-	 * @param Pd The destination position in the ring where the piece will be moved to.
+	 * @param move The move to perform, including the team of the piece that is moving.
 	 * @return True if a mill is made, false otherwise.
 	 */
 	public boolean movePiece(Move move) throws PiecePlacementException {
-		if (!(board[move.Rs][move.Ps]==move.team.getSymbol())){
-			throw new PiecePlacementException("Attempting to move piece that does not belong to team "+move.team.getSymbol()+"\n Piece belongs to: "+board[move.Rs][move.Ps]);
+		return movePiece(move.team, move.encode());
+	}
+	
+	/**
+	 * Moves a piece on the board using an encoded move. This makes no objects, so the AI can use it in its search.
+	 * @param team The team of the piece that is moving.
+	 * @param move Encoded move with the source and destination points. Its capture is not performed here.
+	 * @return True if a mill is made, false otherwise.
+	 */
+	public boolean movePiece(Team team, int move) throws PiecePlacementException {
+		int from = Move.from(move), to = Move.to(move);
+		int Rs = from >> 3, Ps = from & 7, Rd = to >> 3, Pd = to & 7;
+		if (!(board[Rs][Ps]==team.getSymbol())){
+			throw new PiecePlacementException("Attempting to move piece that does not belong to team "+team.getSymbol()+"\n Piece belongs to: "+board[Rs][Ps]);
 		}
 		
-		if (!(board[move.Rd][move.Pd]==EMPTY)){
-			//System.out.println(move.Rs+","+move.Ps+" "+board[move.Rs][move.Ps]+" -> "+move.Rd+","+move.Pd+" "+board[move.Rd][move.Pd]);
+		if (!(board[Rd][Pd]==EMPTY)){
+			//System.out.println(Rs+","+Ps+" "+board[Rs][Ps]+" -> "+Rd+","+Pd+" "+board[Rd][Pd]);
 			throw new PiecePlacementException("Attempting to move piece to space that is not empty");
 		}
-		move.team.updatePiece(new GamePiece(move.Rs,move.Ps), new GamePiece(move.Rd, move.Pd)); //update the team's known pieces and locations
-		board[move.Rd][move.Pd]=board[move.Rs][move.Ps];
-		board[move.Rs][move.Ps]=EMPTY;
+		team.movePiece(Rs, Ps, Rd, Pd); //update the team's known pieces and locations
+		board[Rd][Pd]=board[Rs][Ps];
+		board[Rs][Ps]=EMPTY;
+		togglePiece(sideOf(team), from);
+		togglePiece(sideOf(team), to);
 		
+		return detectNineManMill(team, Rd, Pd);
+	}
+	
+	/**
+	 * Makes an encoded move in place: the team whose turn it is places or moves a piece, the move's capture (if it has one) is removed, and the turn goes to the other team.
+	 * The move is not checked for legality and no objects are made, so the AI can search on one board instead of copying it at every node.
+	 * Calling unmakeMove() with the same move puts the board back exactly as it was, including the pieces left to place and the Zobrist key.
+	 * A move with no destination only removes its capture. It is the rest of a turn whose piece was already placed or moved, for searching which piece to take on its own.
+	 * @param move Encoded move. Placements have no source point.
+	 * @return True if the placed or moved piece is in a mill, whether or not the move has a capture.
+	 */
+	public boolean makeMove(int move){
+		Team team = (CURRENT_TURN == PLAYER1_TURN) ? team1 : team2;
+		Team other = (CURRENT_TURN == PLAYER1_TURN) ? team2 : team1;
+		int from = Move.from(move), to = Move.to(move), capture = Move.capture(move);
+		boolean mill = false;
+		if (to != Move.NO_POINT){
+			if (from == Move.NO_POINT){
+				team.usePiece(to >> 3, to & 7);
+			} else {
+				team.movePiece(from >> 3, from & 7, to >> 3, to & 7);
+				board[from >> 3][from & 7] = EMPTY;
+				togglePiece(sideOf(team), from);
+			}
+			board[to >> 3][to & 7] = team.getSymbol();
+			togglePiece(sideOf(team), to);
+			mill = detectNineManMill(team, to >> 3, to & 7);
+		}
 		
-		return detectNineManMill(move.team, move.Rd, move.Pd);
+		if (capture != Move.NO_POINT){
+			other.discardPiece(capture >> 3, capture & 7);
+			board[capture >> 3][capture & 7] = EMPTY;
+			togglePiece(sideOf(other), capture);
+		}
+		CURRENT_TURN = (CURRENT_TURN == PLAYER1_TURN) ? PLAYER2_TURN : PLAYER1_TURN;
+		return mill;
+	}
+	
+	/**
+	 * Takes back a move made with makeMove(). Moves must be taken back in the opposite order they were made.
+	 * @param move The same encoded move that was passed to makeMove().
+	 */
+	public void unmakeMove(int move){
+		CURRENT_TURN = (CURRENT_TURN == PLAYER1_TURN) ? PLAYER2_TURN : PLAYER1_TURN;
+		Team team = (CURRENT_TURN == PLAYER1_TURN) ? team1 : team2;
+		Team other = (CURRENT_TURN == PLAYER1_TURN) ? team2 : team1;
+		int from = Move.from(move), to = Move.to(move), capture = Move.capture(move);
+		
+		if (capture != Move.NO_POINT){
+			other.restorePiece(capture >> 3, capture & 7);
+			board[capture >> 3][capture & 7] = other.getSymbol();
+			togglePiece(sideOf(other), capture);
+		}
+		if (to == Move.NO_POINT){
+			return; //only a capture
+		}
+		if (from == Move.NO_POINT){
+			team.unusePiece(to >> 3, to & 7);
+		} else {
+			team.movePiece(to >> 3, to & 7, from >> 3, from & 7);
+			board[from >> 3][from & 7] = team.getSymbol();
+			togglePiece(sideOf(team), from);
+		}
+		board[to >> 3][to & 7] = EMPTY;
+		togglePiece(sideOf(team), to);
+	}
+	
+	/**
+	 * Puts a piece that was taken off with removePiece() back on the board. This does not count as placing a piece.
+	 * @param team The team whose piece is being put back.
+	 * @param R The ring to put the piece on.
+	 * @param P The position on the ring to put the piece on.
+	 */
+	public void restorePiece(Team team, int R, int P){
+		board[R][P] = team.getSymbol();
+		togglePiece(sideOf(team), BitBoard.index(R, P));
+		team.restorePiece(R,P);
+	}
+	
+	/**
+	 * Packs this board into a BitBoard state, for use in searches and analysis that don't need the teams.
+	 * @return BitBoard representation of this board, hands and whose turn it is.
+	 */
+	public long toBitBoard(){
+		return BitBoard.pack(occupancy[BitBoard.SIDE_PLAYER1], occupancy[BitBoard.SIDE_PLAYER2], team1.getPiecesRemainingToPlace(), team2.getPiecesRemainingToPlace(), BitBoard.sideOfTurn(CURRENT_TURN));
+	}
+
+	/**
+	 * Gets whose turn it is.
+	 * @return PLAYER1_TURN or PLAYER2_TURN
+	 */
+	public int getTurn(){
+		return CURRENT_TURN;
+	}
+	
+	/**
+	 * Checks if either team still has pieces to place. Unlike setupMode, this does not wait for completeTurn() to notice the last piece was placed.
+	 * @return true if a piece is still left to be placed
+	 */
+	public boolean isPlacementPhase(){
+		return team1.getPiecesRemainingToPlace() > 0 || team2.getPiecesRemainingToPlace() > 0;
+	}
+	
+	/**
+	 * Writes every legal move of the team whose turn it is into a buffer. A move that forms a mill is written once for every piece getAllDestroyable() would allow it to take.
+	 * The board is not changed, and no objects are made.
+	 * @param moves Buffer to write the encoded moves into. It needs MAX_MOVES free slots after start.
+	 * @param start Index of the first slot to write to
+	 * @return Index after the last move written
+	 */
+	public int generateLegalMoves(int[] moves, int start){
+		if (getResult() != RESULT_NONE){
+			return start; //nobody moves once the game is over
+		}
+		return generateTurns(moves, start);
+	}
+	
+	/**
+	 * Writes every move of the team whose turn it is into a buffer like generateLegalMoves(), without checking the game is over first.
+	 * The search checks that itself, and doesn't want to count the moves twice.
+	 * @param moves Buffer to write the encoded moves into. It needs MAX_MOVES free slots after start.
+	 * @param start Index of the first slot to write to
+	 * @return Index after the last move written
+	 */
+	int generateTurns(int[] moves, int start){
+		long state = toBitBoard();
+		int own = BitBoard.occupancy(state, BitBoard.sideToMove(state));
+		int removable = BitBoard.removable(state); //the mover's pieces don't change which enemy pieces are in mills, so this is the same for every move
+		int end = generateMoves((CURRENT_TURN == PLAYER1_TURN) ? team1 : team2, moves, start);
+		int count = end;
+		for (int i = start; i < count; i++){
+			int from = Move.from(moves[i]), to = Move.to(moves[i]);
+			int after = (from == Move.NO_POINT) ? own : own & ~(1 << from);
+			if (removable == 0 || !BitBoard.isMill(after, to)){
+				continue;
+			}
+			//the first capture replaces the move, the rest go on the end
+			moves[i] = Move.encode(from, to, Integer.numberOfTrailingZeros(removable));
+			for (int pieces = removable & (removable - 1); pieces != 0; pieces &= pieces - 1){
+				moves[end++] = Move.encode(from, to, Integer.numberOfTrailingZeros(pieces));
+			}
+		}
+		return end;
+	}
+	
+	/**
+	 * Checks if a move can be played right now.
+	 * @param move encoded move, including its capture
+	 * @return true if generateLegalMoves() would give this move
+	 */
+	public boolean isLegalMove(int move){
+		int[] moves = new int[MAX_MOVES];
+		int count = generateLegalMoves(moves, 0);
+		for (int i = 0; i < count; i++){
+			if (moves[i] == move){
+				return true;
+			}
+		}
+		return false;
 	}
 	
+	/**
+	 * Plays a whole turn for the team whose turn it is, then does what completeTurn() does at the end of a turn. Unlike makeMove(), the move is checked first and can not be taken back.
+	 * @param move encoded legal move, including its capture if it forms a mill
+	 * @throws PiecePlacementException if the move is not legal in this position
+	 */
+	public void playMove(int move) throws PiecePlacementException {
+		if (!isLegalMove(move)){
+			throw new PiecePlacementException("Move "+Move.notation(move)+" is not legal for player "+CURRENT_TURN);
+		}
+		makeMove(move);
+		if (setupMode && !isPlacementPhase()){
+			setupMode = false;
+		}
+		if (getResult() != RESULT_NONE){
+			gameFinished = true;
+		}
+	}
+	
+	/**
+	 * Gets the result of the game. A team loses when it has fewer than three pieces left (on the board and in hand), or when it is their turn, they have no pieces left to place and none of their pieces can move.
+	 * @return RESULT_NONE while the game is being played, otherwise RESULT_PLAYER1_WINS or RESULT_PLAYER2_WINS
+	 */
+	public int getResult(){
+		if (team1.getNumPieces() + team1.getPiecesRemainingToPlace() < 3){
+			return RESULT_PLAYER2_WINS;
+		}
+		if (team2.getNumPieces() + team2.getPiecesRemainingToPlace() < 3){
+			return RESULT_PLAYER1_WINS;
+		}
+		Team team = (CURRENT_TURN == PLAYER1_TURN) ? team1 : team2;
+		if (team.getPiecesRemainingToPlace() == 0 && countMovement(team) == 0){
+			return (CURRENT_TURN == PLAYER1_TURN) ? RESULT_PLAYER2_WINS : RESULT_PLAYER1_WINS;
+		}
+		return RESULT_NONE;
+	}
+	
+	/**
+	 * Makes a deep copy of this board with the copy constructor.
+	 * @return copy of this board
+	 */
+	public GameBoard copy(){
+		return new GameBoard(this);
+	}
+
 	/**
 	 * Gets the current board state in a text form.
 	 * 
@@ -494,107 +818,17 @@ public class GameBoard {
 	}
 
 	/**
-	 * Marks this turn as completed
+	 * Marks this turn as completed. Setup mode ends once both teams have placed all of their pieces, the turn goes to the other team, and the game is finished if that team has lost.
 	 */
 	public void completeTurn() {
-		// Check that we aren't in setup mode anymore
-		if (setupMode){
-			if (team1.getPiecesRemainingToPlace() == 0 && team2.getPiecesRemainingToPlace()==0){
-				//we should remove all non representing buttons, move them to hidden mode.
-				if (parent != null){
-					for (int r = 0; r<=2; r++){
-						//Clearing empty pieces on each ring.
-						for (GamePieceButton piece : parent.pieces[r]){ //iterate on each ring
-							if (piece.representsPiece() == EMPTY){
-								piece.setMode(GamePieceButton.HIDDEN_MODE);
-							}
-						}
-						parent.repaint(); //redraw the screen. this makes the pieces actually disappear
-						setupMode = false; //avoid redoing this loop
-					}
-				}
-			} else {
-				//still setup mode, pieces left to place. Set pieces to the correct modes based on what's playing on what team.
-				//These are based on the turn that is ending - not the turn that is about to start. This is the final stage of the current turn before it is changed.
-				if ((CURRENT_TURN == PLAYER1_TURN && parent.p2ai != null)||(CURRENT_TURN == PLAYER2_TURN && parent.p1ai != null)){
-					//it's about to become an AI player's turn. Turn off human interaction.
-					for (int r = 0; r<=2; r++){
-						for (GamePieceButton piece : parent.pieces[r]){ //iterate on each ring
-							if (piece.representsPiece() == EMPTY){
-								piece.setMode(GamePieceButton.AI_PLACE_MODE);
-							} else {
-								//there's a piece here
-								piece.setMode(GamePieceButton.NORMAL_MODE); //set them to normal modes
-							}
-						}
-					}
-				} else {
-					//it's about to change to a human players turn
-					for (int r = 0; r<=2; r++){
-						//"Clearing empty pieces on ring r
-						for (GamePieceButton piece : parent.pieces[r]){ //iterate on each ring
-							if (piece.representsPiece() == EMPTY) {
-								piece.setMode(GamePieceButton.PLACE_MODE);
-							} else {
-								//there's a piece here
-								piece.setMode(GamePieceButton.NORMAL_MODE); //set them to normal modes
-							}
-						}
-					}
-				}
-			}
+		if (setupMode && team1.getPiecesRemainingToPlace() == 0 && team2.getPiecesRemainingToPlace() == 0){
+			setupMode = false;
 		}
-		//end setup mode checking.
-		
-		int prevTurn = CURRENT_TURN; //used for checking if the other team has won (after the turn has changed)
 		CURRENT_TURN = (CURRENT_TURN == PLAYER1_TURN) ? PLAYER2_TURN : PLAYER1_TURN;	// switch turns
-		if (setupMode == false){
-			//int nextTurn = (CURRENT_TURN == PLAYER1_TURN) ? PLAYER2_TURN : PLAYER1_TURN;
-			//We have now switched turns, pieces should change modes for each side.
-			
-			//We will now check to see if the new team has a move. If they don't, they will lose.
-			Team nextTurnTeam = (CURRENT_TURN == PLAYER1_TURN) ? getTeam1() : getTeam2();
-			if (getAllMoves(nextTurnTeam).size() == 0){
-				//This team loses
-				
-				//force all pieces to normal mode to stop interaction with the board
-				for (int r = 0; r<=2; r++){
-					for (GamePieceButton piece : parent.pieces[r]){ //iterate on each ring
-						if (piece.representsPiece() == EMPTY) continue; //don't do anything to pieces that are empty
-						piece.setMode(GamePieceButton.NORMAL_MODE); //this side can't select now
-					}
-				}
-				parent.setDirections("Player "+((prevTurn == PLAYER1_TURN) ? PLAYER1 : PLAYER2)+" wins!");
-				gameFinished = true;
-				new WinnerDialog(parent,prevTurn, "Player "+((CURRENT_TURN == PLAYER1_TURN) ? PLAYER1 : PLAYER2)+" has no moves left");
-				return; //kill the turn, don't play anymore.
-			}
-			
-			if (parent != null) {
-				// If other player is AI
-				if((CURRENT_TURN == PLAYER1_TURN && parent.p1ai != null) || (CURRENT_TURN == PLAYER2_TURN && parent.p2ai != null)) {
-					for (int r = 0; r<=2; r++){
-						for (GamePieceButton piece : parent.pieces[r]){ //iterate on each ring
-							if (piece.representsPiece() == EMPTY) continue; //don't do anything to pieces that are empty
-							piece.setMode(GamePieceButton.NORMAL_MODE); //this side can't select now
-						}
-					}
-				} else {
-					//human turn
-					for (int r = 0; r<=2; r++){
-						for (GamePieceButton piece : parent.pieces[r]){ //iterate on each ring
-							if (piece.representsPiece() == EMPTY) continue; //don't do anything to pieces that are empty
-							if (piece.representsPiece() == ((CURRENT_TURN == PLAYER1_TURN) ? PLAYER1 : PLAYER2)){
-								piece.setMode(GamePieceButton.SELECT_MODE); //this side can now select
-							} else {
-								piece.setMode(GamePieceButton.NORMAL_MODE); //this side can't select now
-							}
-						}
-					}
-				}
-			}
+		if (getResult() != RESULT_NONE){
+			gameFinished = true;
 		}
-	} //method close
+	}
 	
 	/** 
 	 * Returns a list of all empty places on the board.
@@ -613,33 +847,6 @@ public class GameBoard {
 		return emptyPieces;
 	}
 	
-	/**
-	 * Starts playing the background music for the board. Checks if the music is already playing, and if it is,
-	   it ignores the play request.
-	 */
-	public void playBackgroundMusic(){
-		if (NineManMill.PLAY_MUSIC){
-			if (NineManMill.bgplayer!=null && NineManMill.bgplayer.isActive()){
-				return; //already playing
-			}
-			try {
-				NineManMill.bgplayer.playBGMusic();
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-	}
-	
-	/**
-	 * Stops the background music, if it is possible.
-	 */
-	protected void stopBackgroundMusic(){
-		if (NineManMill.bgplayer!=null){
-			NineManMill.bgplayer.stopMusic();
-		}
-	}
-
 	/**
 	 * Gets a list of pieces that can be destroyed. It ignores pieces in a mill, unless all pieces are in a mill.
 	 * @param other team to get all pieces that are destroyable
@@ -0,0 +1,75 @@
+package com.cs471.ninemanmill;
+
+/**
+ * The rules of Nine Men's Morris, without anything about how the game is shown or who is playing it.
+ * A whole game can be played through this interface: get the legal moves, play one of them, and check the result. The Swing UI is one client of it,
+ * tournaments and test tools that have no window are others.
+ *
+ * Moves are encoded ints (see Move.encode()). A legal move is a whole turn: the placement or movement, plus the piece it captures if it forms a mill.
+ * @author Michael Perez
+ *
+ */
+public interface GameState {
+	public final static int RESULT_NONE = 0; //the game is not over
+	public final static int RESULT_PLAYER1_WINS = GameBoard.PLAYER1_TURN;
+	public final static int RESULT_PLAYER2_WINS = GameBoard.PLAYER2_TURN;
+
+	/**
+	 * Gets whose turn it is.
+	 * @return GameBoard.PLAYER1_TURN or GameBoard.PLAYER2_TURN
+	 */
+	public int getTurn();
+
+	/**
+	 * Checks if pieces are still being placed. The placement phase lasts until both players have placed all of their pieces.
+	 * @return true during the placement phase, false once pieces are being moved
+	 */
+	public boolean isPlacementPhase();
+
+	/**
+	 * Writes every legal move of the player whose turn it is into a buffer. A move that forms a mill is written once for every piece it is allowed to capture.
+	 * Nothing is written once the game is over.
+	 * @param moves Buffer to write the encoded moves into. It needs GameBoard.MAX_MOVES free slots after start.
+	 * @param start Index of the first slot to write to
+	 * @return Index after the last move written
+	 */
+	public int generateLegalMoves(int[] moves, int start);
+
+	/**
+	 * Checks if a move can be played right now.
+	 * @param move encoded move, including its capture
+	 * @return true if the move is one of the moves generateLegalMoves() would give
+	 */
+	public boolean isLegalMove(int move);
+
+	/**
+	 * Plays a whole turn: the move, its capture, and handing the turn to the other player. Ends the placement phase and the game when the rules say so.
+	 * @param move encoded legal move
+	 * @throws PiecePlacementException if the move is not legal in this position
+	 */
+	public void playMove(int move) throws PiecePlacementException;
+
+	/**
+	 * Gets the result of the game. A player loses when they are down to fewer than three pieces, or when it is their turn to move and they can't.
+	 * @return RESULT_NONE while the game is being played, otherwise RESULT_PLAYER1_WINS or RESULT_PLAYER2_WINS
+	 */
+	public int getResult();
+
+	/**
+	 * Gets the Zobrist key of this position.
+	 * @return 64 bit key that is the same for the same position, hands and turn
+	 */
+	public long getZobristKey();
+
+	/**
+	 * Packs this position into a BitBoard state.
+	 * @return BitBoard representation of the position
+	 */
+	public long toBitBoard();
+
+	/**
+	 * Makes an independent copy of this game, so it can be played on without changing this one.
+	 * @return copy of this game
+	 */
+	public GameState copy();
+}
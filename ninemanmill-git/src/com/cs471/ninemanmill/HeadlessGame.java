@@ -0,0 +1,145 @@
+package com.cs471.ninemanmill;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * One game between two AIPlayers with no UI and no delays, as the offline tools (Tournament, OpeningBookGenerator and EvalTuner) play them on their pool threads.
+ * The game is played until it is over or until the ply limit, which calls it a draw. An AIPlayer that plays an illegal move loses the game.
+ * A PlyListener is told about every turn before it is played, and can play a different one instead.
+ * @author Michael Perez
+ *
+ */
+class HeadlessGame {
+	private final AIPlayer player1, player2;
+	private final long timeBudget1, timeBudget2; //time (in ms) each player gets per move
+	private int plies; //turns played
+	private int result = GameState.RESULT_NONE;
+	private String error; //set if a player played an illegal move
+
+	/**
+	 * Told about every turn of a game before it is played.
+	 */
+	interface PlyListener {
+		/**
+		 * Called with the turn the player to move picked, before it is played.
+		 * @param board position the turn is for. It must not be changed.
+		 * @param ply number of the turn in this game, from 0
+		 * @param move encoded turn the player picked
+		 * @param nanos time the player took to pick it
+		 * @return the turn to play, move or another legal turn
+		 */
+		int turnPicked(GameBoard board, int ply, int move, long nanos);
+	}
+
+	/**
+	 * Makes a new game between two players.
+	 * @param player1 player 1
+	 * @param timeBudget1 time (in ms) player 1 gets per move
+	 * @param player2 player 2
+	 * @param timeBudget2 time (in ms) player 2 gets per move
+	 */
+	HeadlessGame(AIPlayer player1, long timeBudget1, AIPlayer player2, long timeBudget2){
+		this.player1 = player1;
+		this.player2 = player2;
+		this.timeBudget1 = timeBudget1;
+		this.timeBudget2 = timeBudget2;
+	}
+
+	/**
+	 * Makes an AIPlayer for a game on a pool thread. The games already run in parallel, so its search gets one thread, and its log is off so it doesn't bury the tool's progress.
+	 * @param playerID GameBoard.PLAYER1 or GameBoard.PLAYER2
+	 * @param difficulty AIPlayer level
+	 * @return the player
+	 */
+	static AIPlayer newPlayer(char playerID, int difficulty){
+		AIPlayer player = new AIPlayer(playerID, difficulty, 1);
+		player.setLogging(false);
+		return player;
+	}
+
+	/**
+	 * Plays games on a pool, printing each one as it finishes. A game that throws is reported and the others go on.
+	 * @param pool pool to play the games on
+	 * @param games the games, each one returns what is printed for it
+	 */
+	static <T> void playAll(ExecutorService pool, List<? extends Callable<T>> games){
+		CompletionService<T> done = new ExecutorCompletionService<T>(pool);
+		for (Callable<T> game : games){
+			done.submit(game);
+		}
+		for (int finished = 1; finished <= games.size(); finished++){
+			try {
+				System.out.println("Game "+finished+"/"+games.size()+": "+done.take().get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				System.err.println("A game failed to finish:");
+				e.getCause().printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Plays the game from a position to the end, or until it is a draw by the ply limit.
+	 * @param board position to start from. It is played on.
+	 * @param maxPlies plies before the game is called a draw
+	 * @param listener told about every turn, or null for nobody
+	 * @return GameState.RESULT_NONE for a draw, otherwise the winner
+	 */
+	int play(GameBoard board, int maxPlies, PlyListener listener){
+		result = board.getResult();
+		for (plies = 0; plies < maxPlies && result == GameState.RESULT_NONE; plies++){
+			boolean player1Turn = board.getTurn() == GameBoard.PLAYER1_TURN;
+			long start = System.nanoTime();
+			int move = (player1Turn ? player1 : player2).getNextTurn(board, System.currentTimeMillis() + (player1Turn ? timeBudget1 : timeBudget2));
+			long nanos = System.nanoTime() - start;
+			if (listener != null){
+				move = listener.turnPicked(board, plies, move, nanos);
+			}
+			try {
+				board.playMove(move);
+				result = board.getResult();
+			} catch (PiecePlacementException e) {
+				//an illegal move loses the game
+				error = "player "+(player1Turn ? 1 : 2)+" played an illegal move: "+e.getMessage();
+				result = player1Turn ? GameState.RESULT_PLAYER2_WINS : GameState.RESULT_PLAYER1_WINS;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the result of the game.
+	 * @return GameState.RESULT_NONE for a draw or a game that isn't over, otherwise the winner
+	 */
+	int getResult(){
+		return result;
+	}
+
+	/**
+	 * Gets the number of turns played.
+	 * @return plies played by play()
+	 */
+	int getPlies(){
+		return plies;
+	}
+
+	/**
+	 * Gets what went wrong, if a player lost by playing an illegal move.
+	 * @return description of the illegal move, or null
+	 */
+	String getError(){
+		return error;
+	}
+
+	@Override
+	public String toString(){
+		return ((result == GameState.RESULT_NONE) ? "draw" : "player "+result+" won")+" after "+plies+" plies"+((error != null) ? " ("+error+")" : "");
+	}
+}
@@ -13,6 +13,8 @@ package com.cs471.ninemanmill;
  *
  */
 public class Move {
+	public final static int NO_POINT = 31; /* Used in an encoded move for a missing source (placements) or capture */
+	public final static int NONE = -1; /* Encoded value for no move at all */
 	public int Rs; /* Position this move starts at */
 	public int Ps;
 	public int Rd; /* Destination coordinates */
@@ -52,6 +54,78 @@ public class Move {
 		return new GamePiece(Rs,Ps);
 	}
 	
+	/**
+	 * Encodes this move as an int, see encode(int, int, int).
+	 * @return encoded move with no capture
+	 */
+	public int encode(){
+		return encode(BitBoard.index(Rs, Ps), BitBoard.index(Rd, Pd), NO_POINT);
+	}
+	
+	/**
+	 * Packs a move into an int so the AI can store and pass moves around without making objects. Points are BitBoard point indexes, 5 bits each:
+	 * bits 0-4 are the source (NO_POINT for a placement), bits 5-9 the destination, and bits 10-14 the piece captured by a mill formed with this move (NO_POINT if none).
+	 * @param from source point, or NO_POINT
+	 * @param to destination point
+	 * @param capture captured point, or NO_POINT
+	 * @return encoded move
+	 */
+	public static int encode(int from, int to, int capture){
+		return from | (to << 5) | (capture << 10);
+	}
+	
+	/**
+	 * Gets the source point of an encoded move.
+	 * @param move encoded move
+	 * @return source point, NO_POINT for a placement
+	 */
+	public static int from(int move){
+		return move & 31;
+	}
+	
+	/**
+	 * Gets the destination point of an encoded move.
+	 * @param move encoded move
+	 * @return destination point
+	 */
+	public static int to(int move){
+		return (move >> 5) & 31;
+	}
+	
+	/**
+	 * Gets the captured point of an encoded move.
+	 * @param move encoded move
+	 * @return captured point, NO_POINT if nothing is captured
+	 */
+	public static int capture(int move){
+		return (move >> 10) & 31;
+	}
+	
+	/**
+	 * Writes an encoded move in a short form with R,P coordinates: "@0,2" places on 0,2, "0,1-0,2" moves from 0,1 to 0,2, and "x1,1" on the end captures the piece on 1,1. A capture on its own is just "x1,1".
+	 * @param move encoded move
+	 * @return short text form of the move
+	 */
+	public static String notation(int move){
+		if (move == NONE){
+			return "none";
+		}
+		int from = from(move), to = to(move), capture = capture(move);
+		StringBuilder sb = new StringBuilder();
+		if (from != NO_POINT){
+			sb.append(from >> 3).append(',').append(from & 7).append('-');
+		} else if (to != NO_POINT){
+			sb.append('@');
+		}
+		if (to != NO_POINT){
+			sb.append(to >> 3).append(',').append(to & 7);
+		}
+		if (capture != NO_POINT){
+			sb.append('x').append(capture >> 3).append(',').append(capture & 7);
+		}
+		return sb.toString();
+	}
+	
 	/**
 	 * String representation of this move object, showing the team symbol and starting/ending positions.
 	 * @return String representation of this move
@@ -59,4 +133,4 @@ public class Move {
 	public String toString(){
 		return "Move for team "+team.getSymbol()+", source "+Rs+","+Ps+" to destination "+Rd+","+Pd;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
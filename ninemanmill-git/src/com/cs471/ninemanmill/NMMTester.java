@@ -11,6 +11,7 @@ package com.cs471.ninemanmill;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -300,4 +301,558 @@ public class NMMTester {
 				e.printStackTrace();
 			}
 		}
+	
+
+	/**
+	 * Tests that the bitboard agrees with the gameboard when placing pieces and forming mills.
+	 */
+	@Test
+	public void testBitBoard(){
+		GameBoard board = new GameBoard(true);
+		long state = BitBoard.START_STATE;
+		assertEquals(state, board.toBitBoard());
+		int[][] places = {{0,0},{1,1},{0,1},{1,3},{0,2}}; //player 1 fills the top of the outer ring
+		try {
+			for (int[] place : places){
+				boolean mill = board.placePiece(place[0], place[1]);
+				state = BitBoard.place(state, BitBoard.index(place[0], place[1]));
+				assertEquals(mill, BitBoard.formsMill(state, BitBoard.index(place[0], place[1])));
+				if (!mill){
+					board.CURRENT_TURN = (board.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? GameBoard.PLAYER2_TURN : GameBoard.PLAYER1_TURN;
+					state = BitBoard.switchSide(state);
+				}
+				assertEquals(board.toBitBoard(), state);
+			}
+		} catch (PiecePlacementException e) {
+			fail("Placing pieces threw an exception");
+		}
+		assertEquals(2, Integer.bitCount(BitBoard.removable(state)));
+		state = BitBoard.remove(state, BitBoard.index(1, 1));
+		assertEquals(1, BitBoard.pieceCount(state, BitBoard.SIDE_PLAYER2));
+		assertEquals(6, BitBoard.inHand(state, BitBoard.SIDE_PLAYER1));
+		assertEquals(7, BitBoard.inHand(state, BitBoard.SIDE_PLAYER2));
+	}
+
+	/**
+	 * Tests that the incrementally updated Zobrist key always matches hashing the board from scratch.
+	 */
+	@Test
+	public void testZobristKey(){
+		GameBoard board = new GameBoard(true);
+		int[][] places = {{0,0},{1,1},{0,1},{1,3},{2,5},{0,3}};
+		try {
+			for (int[] place : places){
+				board.placePiece(place[0], place[1]);
+				board.CURRENT_TURN = (board.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? GameBoard.PLAYER2_TURN : GameBoard.PLAYER1_TURN;
+				assertEquals(Zobrist.hash(board.toBitBoard()), board.getZobristKey());
+			}
+			long beforeMove = board.getZobristKey();
+			board.movePiece(new Move(board.getTeam1(), 0, 1, 0, 2));
+			assertEquals(Zobrist.hash(board.toBitBoard()), board.getZobristKey());
+			board.movePiece(new Move(board.getTeam1(), 0, 2, 0, 1));
+			assertEquals(beforeMove, board.getZobristKey());
+			board.removePiece(board.getTeam2(), 1, 1);
+			assertEquals(Zobrist.hash(board.toBitBoard()), board.getZobristKey());
+		} catch (PiecePlacementException e) {
+			fail("Placing or moving pieces threw an exception");
+		}
+	}
+	
+	@Test
+	public void testMoveGeneration(){
+		GameBoard board = new GameBoard(true);
+		int[][] places = {{0,0},{1,1},{0,1},{1,3},{2,5},{0,3}};
+		try {
+			for (int[] place : places){
+				board.placePiece(place[0], place[1]);
+				board.CURRENT_TURN = (board.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? GameBoard.PLAYER2_TURN : GameBoard.PLAYER1_TURN;
+			}
+		} catch (PiecePlacementException e) {
+			fail("Placing pieces threw an exception");
+		}
+		int[] buffer = new int[2 * GameBoard.MAX_MOVES];
+		assertEquals(GameBoard.MAX_MOVES + 18, board.generatePlacements(buffer, GameBoard.MAX_MOVES));
+		for (Team team : new Team[]{board.getTeam1(), board.getTeam2()}){
+			ArrayList<Move> expected = board.getAllMoves(team);
+			int end = board.generateMovement(team, buffer, GameBoard.MAX_MOVES);
+			assertEquals(expected.size(), end - GameBoard.MAX_MOVES);
+			assertEquals(expected.size(), board.countMovement(team));
+			for (Move move : expected){
+				boolean found = false;
+				for (int i = GameBoard.MAX_MOVES; i < end; i++){
+					found |= buffer[i] == move.encode();
+				}
+				assertTrue(found);
+			}
+		}
+	}
+	
+	@Test
+	public void testMakeUnmakeMove(){
+		GameBoard board = new GameBoard(true);
+		int[] moves = {
+				Move.encode(Move.NO_POINT, BitBoard.index(0,0), Move.NO_POINT),
+				Move.encode(Move.NO_POINT, BitBoard.index(1,1), Move.NO_POINT),
+				Move.encode(Move.NO_POINT, BitBoard.index(0,1), Move.NO_POINT),
+				Move.encode(Move.NO_POINT, BitBoard.index(1,3), Move.NO_POINT),
+				Move.encode(Move.NO_POINT, BitBoard.index(0,2), BitBoard.index(1,1)), //mill, takes 1,1
+				Move.encode(BitBoard.index(1,3), BitBoard.index(1,2), Move.NO_POINT)
+		};
+		String[] before = new String[moves.length];
+		long[] keys = new long[moves.length];
+		for (int i = 0; i < moves.length; i++){
+			before[i] = BitBoard.toString(board.toBitBoard());
+			keys[i] = board.getZobristKey();
+			assertEquals(i == 4, board.makeMove(moves[i]));
+			assertEquals(Zobrist.hash(board.toBitBoard()), board.getZobristKey());
+		}
+		assertEquals(1, board.getTeam2().getNumPieces());
+		assertEquals(6, board.getTeam1().getPiecesRemainingToPlace());
+		for (int i = moves.length - 1; i >= 0; i--){
+			board.unmakeMove(moves[i]);
+			assertEquals(before[i], BitBoard.toString(board.toBitBoard()));
+			assertEquals(keys[i], board.getZobristKey());
+		}
+		assertEquals(0, board.getTeam1().getNumPieces());
+		assertEquals(9, board.getTeam2().getPiecesRemainingToPlace());
+		assertEquals(GameBoard.PLAYER1_TURN, board.CURRENT_TURN);
+	}
+	
+	@Test
+	public void testLegalMovesAndResult(){
+		GameState game = new GameBoard(true);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		int[][] places = {{0,0},{1,1},{0,1},{1,3}};
+		try {
+			for (int[] place : places){
+				game.playMove(Move.encode(Move.NO_POINT, BitBoard.index(place[0], place[1]), Move.NO_POINT));
+			}
+		} catch (PiecePlacementException e) {
+			fail("Placing pieces threw an exception");
+		}
+		//player 1 can fill the top of the outer ring, which takes either of player 2's pieces
+		assertEquals(21, game.generateLegalMoves(moves, 0));
+		assertTrue(game.isLegalMove(Move.encode(Move.NO_POINT, BitBoard.index(0,2), BitBoard.index(1,1))));
+		assertTrue(game.isLegalMove(Move.encode(Move.NO_POINT, BitBoard.index(0,2), BitBoard.index(1,3))));
+		assertFalse(game.isLegalMove(Move.encode(Move.NO_POINT, BitBoard.index(0,2), Move.NO_POINT)));
+		assertFalse(game.isLegalMove(Move.encode(Move.NO_POINT, BitBoard.index(1,1), Move.NO_POINT)));
+		try {
+			game.playMove(Move.encode(Move.NO_POINT, BitBoard.index(1,1), Move.NO_POINT));
+			fail("Placing on a taken point should not be legal");
+		} catch (PiecePlacementException e) {
+			//expected
+		}
+		
+		//play the game out, always taking the last legal move
+		for (int ply = 0; ply < 300 && game.getResult() == GameState.RESULT_NONE; ply++){
+			int count = game.generateLegalMoves(moves, 0);
+			assertTrue(count > 0);
+			assertEquals(ply % 2 == 0 ? GameBoard.PLAYER1_TURN : GameBoard.PLAYER2_TURN, game.getTurn());
+			try {
+				game.playMove(moves[count - 1]);
+			} catch (PiecePlacementException e) {
+				fail("Playing a generated move threw an exception");
+			}
+			assertEquals(Zobrist.hash(game.toBitBoard()), game.getZobristKey());
+		}
+		assertEquals(game.getResult() != GameState.RESULT_NONE, game.generateLegalMoves(moves, 0) == 0);
+	}
+	
+	@Test
+	public void testFromBitBoard(){
+		long state = BitBoard.fromString("1EE2EE2E" + "E1E2E2EE" + "EEE1E2EE", 0, 2, BitBoard.SIDE_PLAYER2);
+		assertEquals("1EE2EE2E" + "E1E2E2EE" + "EEE1E2EE", BitBoard.toString(state));
+		GameBoard board = GameBoard.fromBitBoard(state, true);
+		assertEquals(state, board.toBitBoard());
+		assertEquals(Zobrist.hash(state), board.getZobristKey());
+		assertEquals(3, board.getTeam1().getNumPieces());
+		assertEquals(5, board.getTeam2().getNumPieces());
+		assertEquals(GameBoard.PLAYER2_TURN, board.getTurn());
+		assertTrue(board.setupMode);
+	}
+	
+	/**
+	 * Tests that the points BitBoard.millThreats() gives are the points the side to move can close a mill on, over random games.
+	 */
+	@Test
+	public void testMillThreats(){
+		Random random = new Random(18);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		for (int game = 0; game < 20; game++){
+			GameBoard board = new GameBoard(true);
+			for (int ply = 0; ply < 200; ply++){
+				int count = board.generateLegalMoves(moves, 0);
+				if (count == 0) break;
+				long state = board.toBitBoard();
+				int side = BitBoard.sideToMove(state);
+				int closing = 0;
+				for (int i = 0; i < count; i++){
+					if (Move.capture(moves[i]) != Move.NO_POINT){
+						closing |= 1 << Move.to(moves[i]);
+					}
+				}
+				if (BitBoard.occupancy(state, side ^ 1) != 0){ //with nothing to take, closing a mill doesn't show in the moves
+					assertEquals(closing, BitBoard.millThreats(state, side, true));
+				}
+				board.makeMove(moves[random.nextInt(count)]);
+			}
+		}
+	}
+	
+	/**
+	 * Tests that the evaluation terms the board keeps up to date as moves are made and taken back match counting them from the board, over random games.
+	 */
+	@Test
+	public void testIncrementalEvaluation(){
+		Random random = new Random(19);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		for (int game = 0; game < 20; game++){
+			GameBoard board = new GameBoard(true);
+			for (int ply = 0; ply < 200; ply++){
+				checkEvaluationTerms(board, board.getTeam1());
+				checkEvaluationTerms(board, board.getTeam2());
+				int count = board.generateLegalMoves(moves, 0);
+				if (count == 0) break;
+				int move = moves[random.nextInt(count)];
+				if (ply % 3 == 0){
+					//take a move back before playing, so unmakeMove() is checked too
+					board.makeMove(moves[0]);
+					board.unmakeMove(moves[0]);
+					checkEvaluationTerms(board, board.getTeam1());
+				}
+				board.makeMove(move);
+			}
+		}
+	}
+
+	/**
+	 * Counts a team's evaluation terms from the board and checks the board's counts match.
+	 * @param board board to check
+	 * @param team team to check
+	 */
+	private void checkEvaluationTerms(GameBoard board, Team team){
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		assertEquals(board.generateMovement(team, moves, 0), board.countMovement(team));
+		int occupancy = 0, millPieces = 0, openTwos = 0;
+		for (GamePiece piece : team.teamPieces){
+			occupancy |= 1 << BitBoard.index(piece.getR(), piece.getP());
+			if (board.detectNineManMill(team, piece.getR(), piece.getP())){
+				millPieces++;
+			}
+		}
+		for (int line : BoardTables.MILL_LINES){
+			int empty = 0;
+			for (int point = 0; point < BitBoard.POINTS; point++){
+				if ((line & (1 << point)) != 0 && board.checkIfEmptyPlace(point >> 3, point & 7)){
+					empty++;
+				}
+			}
+			if (Integer.bitCount(occupancy & line) == 2 && empty == 1){
+				openTwos++;
+			}
+		}
+		assertEquals(occupancy, board.getOccupancy(team));
+		assertEquals(millPieces, board.countMillPieces(team));
+		assertEquals(openTwos, board.countOpenTwos(team));
+	}
+	
+	@Test
+	public void testPerft(){
+		//no mills can be made in the first four turns, so these are just the empty points multiplied together
+		long[] expected = {1, 24, 552, 12144, 255024, 5140800};
+		for (int depth = 0; depth < expected.length; depth++){
+			assertEquals(expected[depth], Perft.perft(new GameBoard(true), depth));
+		}
+		long flying = BitBoard.fromString("1EE2EE2E" + "E1E2E2EE" + "EEE1E2EE", 0, 0, BitBoard.SIDE_PLAYER1);
+		assertEquals(22984, Perft.perft(GameBoard.fromBitBoard(flying, true), 3));
+		assertEquals(22984, Perft.perftBitBoard(flying, 3, true));
+		long moving = BitBoard.fromString("12112E21" + "2E1E21E2" + "E12EE1E2", 0, 0, BitBoard.SIDE_PLAYER2);
+		assertEquals(Perft.perftBitBoard(moving, 5, false), Perft.perft(GameBoard.fromBitBoard(moving, false), 5));
+	}
+
+	@Test
+	public void testTablebase() throws java.io.IOException {
+		//positions are numbered by ranking the points of each side
+		int toMove = (1 << 0) | (1 << 9) | (1 << 23), other = (1 << 1) | (1 << 5) | (1 << 12) | (1 << 20);
+		assertEquals(toMove, Tablebase.unrank(Tablebase.rank(toMove), 3));
+		assertEquals(other, Tablebase.expand(Tablebase.compress(other, toMove), toMove));
+		assertTrue(Tablebase.index(toMove, other) < Tablebase.size(3, 4));
+
+		java.io.File directory = new java.io.File(System.getProperty("java.io.tmpdir"), "nmmtest-tablebase");
+		Tablebase tablebase = TablebaseGenerator.generate(3, directory);
+		Tablebase mapped = Tablebase.load(directory); //the same tables, read back through memory mapping
+		assertEquals(3, mapped.getMaxPieces());
+		//player 1 flies 2,5 up to 0,2 to close the mill on the outer ring, and taking any piece leaves player 2 with two
+		GameBoard board = GameBoard.fromBitBoard(BitBoard.fromString("11EEEEEE" + "E2E2E2EE" + "EEEEE1EE", 0, 0, BitBoard.SIDE_PLAYER1), true);
+		int value = tablebase.probe(board);
+		assertTrue(Tablebase.isWin(value));
+		assertEquals(1, Tablebase.pliesToEnd(value));
+		int best = tablebase.bestMove(board);
+		assertEquals(BitBoard.index(2, 5), Move.from(best));
+		assertEquals(BitBoard.index(0, 2), Move.to(best));
+		assertTrue(Move.capture(best) != Move.NO_POINT);
+		assertEquals(Tablebase.NOT_FOUND, tablebase.probe(new GameBoard(true)));
+
+		//every value has to agree with the values after each legal move
+		java.util.Random random = new java.util.Random(471);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		for (int n = 0; n < 500; n++){
+			int own = 0, opponent = 0;
+			while (Integer.bitCount(own) < 3) own |= 1 << random.nextInt(BitBoard.POINTS);
+			while (Integer.bitCount(opponent) < 3) opponent |= (1 << random.nextInt(BitBoard.POINTS)) & ~own;
+			board = GameBoard.fromBitBoard(BitBoard.pack(own, opponent, 0, 0, BitBoard.SIDE_PLAYER1), true);
+			int bestScore = Integer.MIN_VALUE;
+			for (int i = board.generateLegalMoves(moves, 0) - 1; i >= 0; i--){
+				int ownAfter = own & ~(1 << Move.from(moves[i])) | (1 << Move.to(moves[i]));
+				int opponentAfter = (Move.capture(moves[i]) == Move.NO_POINT) ? opponent : opponent & ~(1 << Move.capture(moves[i]));
+				bestScore = Math.max(bestScore, tablebase.scoreAfterTurn(ownAfter, opponentAfter));
+			}
+			//the best move is one ply closer to the end than the position itself
+			assertEquals(tablebase.probe(own, opponent), mapped.probe(own, opponent));
+			int score = Tablebase.score(tablebase.probe(own, opponent));
+			assertEquals(score, (bestScore > 0) ? bestScore - 1 : (bestScore < 0) ? bestScore + 1 : 0);
+		}
+		for (java.io.File file : directory.listFiles()){
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testOpeningBook() throws java.io.IOException {
+		GameBoard board = new GameBoard(true);
+		long start = board.getZobristKey();
+		board.makeMove(Move.encode(Move.NO_POINT, 9, Move.NO_POINT));
+		long afterCenter = board.getZobristKey();
+		board.unmakeMove(Move.encode(Move.NO_POINT, 9, Move.NO_POINT));
+
+		//entries have to be sorted by key
+		java.nio.ByteBuffer entries = java.nio.ByteBuffer.allocate(3 * OpeningBook.ENTRY_BYTES);
+		long[] keys = {start, start, afterCenter};
+		int[] points = {9, 11, 1};
+		Integer[] order = {0, 1, 2};
+		if (afterCenter < start){
+			order = new Integer[] {2, 0, 1};
+		}
+		for (int i : order){
+			OpeningBook.putEntry(entries, keys[i], points[i], 100);
+		}
+		java.io.File file = new java.io.File(System.getProperty("java.io.tmpdir"), "nmmtest.nmob");
+		OpeningBook.write(file, entries.array());
+		OpeningBook book = OpeningBook.load(file);
+		assertEquals(3, book.size());
+
+		java.util.Random random = new java.util.Random(471);
+		boolean[] picked = new boolean[BitBoard.POINTS];
+		for (int i = 0; i < 50; i++){
+			int point = book.probe(board, random);
+			assertTrue(point == 9 || point == 11);
+			picked[point] = true;
+		}
+		assertTrue(picked[9] && picked[11]);
+
+		board.makeMove(Move.encode(Move.NO_POINT, 9, Move.NO_POINT));
+		assertEquals(1, book.probe(board, random));
+		board.makeMove(Move.encode(Move.NO_POINT, 1, Move.NO_POINT));
+		assertEquals(-1, book.probe(board, random));
+		file.delete();
+	}
+
+	@Test
+	public void testEvalWeights() throws java.io.IOException {
+		java.io.File file = new java.io.File(System.getProperty("java.io.tmpdir"), "nmmtest_weights.ini");
+		EvalWeights weights = new EvalWeights();
+		assertEquals(20, weights.get(EvalWeights.PLACE_MILL_PIECE), 0);
+		weights.set(EvalWeights.MOVE_PIECE, 2.25);
+		weights.store(file);
+		EvalWeights loaded = EvalWeights.load(file);
+		for (int i = 0; i < EvalWeights.COUNT; i++){
+			assertEquals(weights.get(i), loaded.get(i), 0);
+		}
+
+		//weights missing from the file keep their defaults
+		java.io.PrintWriter writer = new java.io.PrintWriter(file);
+		writer.println("[Movement]");
+		writer.println("blocked = 4");
+		writer.close();
+		loaded = EvalWeights.load(file);
+		assertEquals(4, loaded.get(EvalWeights.MOVE_BLOCKED), 0);
+		assertEquals(1.5, loaded.get(EvalWeights.MOVE_PIECE), 0);
+
+		//the weights change the evaluation
+		GameBoard board = new GameBoard(true);
+		board.makeMove(Move.encode(Move.NO_POINT, BitBoard.index(0,1), Move.NO_POINT));
+		Searcher searcher = new Searcher(GameBoard.PLAYER2, AIPlayer.AI_IMPOSSIBLE, 1, 1);
+		assertEquals(-2, searcher.evalBoardPlace(board, board.getTeam2(), board.getTeam1()));
+		weights.set(EvalWeights.PLACE_MIDSECTION, 5);
+		searcher.setWeights(weights);
+		assertEquals(-5, searcher.evalBoardPlace(board, board.getTeam2(), board.getTeam1()));
+		file.delete();
+	}
+
+	/**
+	 * Tests that capture-only moves are taken back exactly, and that the searched capture is always a piece the rules allow taking, over random games.
+	 */
+	@Test
+	public void testSearchCapture(){
+		Random random = new Random(21);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		Searcher searcher = new Searcher(GameBoard.PLAYER1, AIPlayer.AI_HARD, 1, 16);
+		int searched = 0;
+		for (int game = 0; game < 10; game++){
+			GameBoard board = new GameBoard(true);
+			for (int ply = 0; ply < 200; ply++){
+				int count = board.generateLegalMoves(moves, 0);
+				if (count == 0) break;
+				int move = moves[random.nextInt(count)];
+				if (Move.capture(move) != Move.NO_POINT && board.getTurn() == GameBoard.PLAYER1_TURN){
+					//make the mill without taking anything, then check the piece the searcher takes is one the legal moves could take
+					int removable = 0;
+					for (int i = 0; i < count; i++){
+						if (Move.from(moves[i]) == Move.from(move) && Move.to(moves[i]) == Move.to(move)){
+							removable |= 1 << Move.capture(moves[i]);
+						}
+					}
+					GameBoard mill = new GameBoard(board);
+					mill.makeMove(Move.encode(Move.from(move), Move.to(move), Move.NO_POINT));
+					long key = mill.getZobristKey();
+					int capture = Move.encode(Move.NO_POINT, Move.NO_POINT, Move.capture(move));
+					mill.makeMove(capture);
+					mill.unmakeMove(capture);
+					assertEquals(key, mill.getZobristKey());
+					int point = searcher.searchCapture(mill, 2, 0);
+					assertTrue((removable & (1 << point)) != 0);
+					assertEquals(key, mill.getZobristKey()); //the search works on a copy
+					searched++;
+				}
+				board.makeMove(move);
+			}
+		}
+		assertTrue(searched > 0);
+	}
+
+	/**
+	 * Tests that a search reports its progress, finishes with a move when it is stopped, and ends quickly when the thread running it is interrupted, with one thread and with two.
+	 */
+	@Test
+	public void testSearchCancel() throws InterruptedException {
+		for (int threads = 1; threads <= 2; threads++){
+			final Searcher searcher = new Searcher(GameBoard.PLAYER1, AIPlayer.AI_IMPOSSIBLE, threads, 16);
+			final ArrayList<SearchProgress> reports = new ArrayList<SearchProgress>();
+			searcher.setProgressListener(new Searcher.ProgressListener(){
+				@Override
+				public void searchProgress(SearchProgress progress){
+					synchronized (reports){
+						reports.add(progress);
+					}
+				}
+			});
+			final GameBoard board = new GameBoard(true);
+			final int[] moves = new int[GameBoard.MAX_MOVES];
+			final int count = board.generateLegalMoves(moves, 0);
+			final int[] best = {Move.NONE};
+			Runnable search = new Runnable(){
+				@Override
+				public void run(){
+					best[0] = searcher.search(board, moves.clone(), count, Searcher.MAX_PLY, System.currentTimeMillis() + 60000);
+				}
+			};
+
+			//stopped: it still returns the best move of a depth that finished
+			Thread thread = new Thread(search);
+			thread.start();
+			Thread.sleep(500);
+			searcher.stop();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+			assertTrue(searcher.getCompletedDepth() >= 1);
+			assertTrue(Move.to(best[0]) != Move.NO_POINT);
+			synchronized (reports){
+				assertTrue(reports.size() >= 2);
+				SearchProgress last = reports.get(reports.size() - 1);
+				assertTrue(last.getNodes() > 0 && last.getNodesPerSecond() > 0);
+				assertTrue(last.getBestMove() != Move.NONE);
+			}
+
+			//interrupted: the search is thrown away and the thread is free right away
+			thread = new Thread(search);
+			thread.start();
+			Thread.sleep(500);
+			thread.interrupt();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+		}
+	}
+
+	/**
+	 * Tests that an AI that ponders on its opponent's time still plays legal turns, whether the opponent plays the predicted reply or not.
+	 */
+	@Test
+	public void testPondering() throws InterruptedException {
+		AIPlayer opponent = new AIPlayer(GameBoard.PLAYER1, AIPlayer.AI_HARD, 1);
+		AIPlayer ai = new AIPlayer(GameBoard.PLAYER2, AIPlayer.AI_HARD, 1);
+		ai.setOpeningBook(null);
+		Random random = new Random(23);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		GameBoard board = new GameBoard(true);
+		for (int ply = 0; ply < 60; ply++){
+			//the opponent plays a good move most of the time, which is what pondering predicts, and a random one otherwise
+			int count = board.generateLegalMoves(moves, 0);
+			if (count == 0) break;
+			int move = (random.nextInt(3) == 0) ? moves[random.nextInt(count)] : opponent.getNextTurn(board, System.currentTimeMillis() + 50);
+			Thread.sleep(20);
+			board.makeMove(move);
+
+			count = board.generateLegalMoves(moves, 0);
+			if (count == 0) break;
+			int reply = ai.getNextTurn(board, System.currentTimeMillis() + 100);
+			boolean legal = false;
+			for (int i = 0; i < count; i++){
+				legal |= moves[i] == reply;
+			}
+			assertTrue(Move.notation(reply), legal);
+			board.makeMove(reply);
+			ai.startPondering(board);
+		}
+		ai.stopPondering();
+	}
+
+	/**
+	 * Tests that the session host plays the AI's turns after a human's, rejects moves out of turn, and plays AI games to the end.
+	 */
+	@Test
+	public void testSessionHost() throws Exception {
+		SessionHost host = new SessionHost(1, 20, 100);
+		SessionHost.Session human = host.createSession(SessionHost.HUMAN, AIPlayer.AI_MEDIUM, true);
+		SessionHost.Session ai = host.createSession(AIPlayer.AI_RANDOM, AIPlayer.AI_RANDOM, true);
+		assertEquals(2, host.getActiveSessions());
+
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		for (int turn = 0; turn < 3; turn++){
+			GameBoard board = human.getBoard();
+			assertEquals(GameBoard.PLAYER1_TURN, board.getTurn());
+			board.generateLegalMoves(moves, 0);
+			host.play(human, moves[0]);
+			try {
+				host.play(human, moves[0]);
+				fail("Played on the AI's turn");
+			} catch (PiecePlacementException e) {
+				//expected, the AI is searching
+			}
+			for (int wait = 0; wait < 100 && human.getPlies() < 2 * turn + 2; wait++){
+				Thread.sleep(20);
+			}
+			assertEquals(2 * turn + 2, human.getPlies());
+		}
+
+		for (int wait = 0; wait < 250 && !ai.isOver(); wait++){
+			Thread.sleep(20);
+		}
+		assertTrue(ai.isOver());
+		assertEquals(1, host.getFinishedGames());
+		host.close(human);
+		assertTrue(human.isOver());
+		assertEquals(0, host.getActiveSessions());
+		host.shutdown();
 	}
+}
@@ -23,6 +23,10 @@ public class NineManMill {
 	public final static String settingsfile = "nmm_settings.ini";
 	protected static boolean PLAY_SFX = true; //default to true
 	protected static boolean PLAY_MUSIC = true; //default to true
+	protected static long AI_TIME_BUDGET = 1000; //time in ms the AI may spend searching for a move, default to 1 second. It is a soft limit, the search only checks the clock every thousand or so positions
+	protected static int AI_THREADS = 1; //threads the AI searches with, default to 1
+	protected static boolean AI_PONDER = true; //if the AI searches while a human is thinking, default to true
+	protected static long AI_DELAY = 1500; //least time in ms between the AI starting to think and its move showing, so the human can follow. 0 plays at full speed.
 	public static MIDIPlayer bgplayer;
 	public static WavePlayer sfxplayer;
 	public static AudioInputStream aisClick;
@@ -68,10 +72,34 @@ public class NineManMill {
 				//set values instead of reading them
 				ini.put("Settings", "playmusic", 1);
 				ini.put("Settings", "playsfx", 1);
+				ini.put("Settings", "aitimebudget", AI_TIME_BUDGET);
+				ini.put("Settings", "aithreads", AI_THREADS);
+				ini.put("Settings", "aiponder", 1);
+				ini.put("Settings", "aidelay", AI_DELAY);
 			} else {
 				//read values
 				PLAY_SFX = (ini.get("Settings", "playsfx", int.class) == 1) ? true : false; //if the settings has 1 for playsfx, play, otherwise don't
 				PLAY_MUSIC = (ini.get("Settings", "playmusic", int.class) == 1) ? true : false; //if the settings has 1 for playsfx, play, otherwise don't
+				long timeBudget = ini.get("Settings", "aitimebudget", long.class);
+				if (timeBudget > 0){
+					AI_TIME_BUDGET = timeBudget; //leave the default if the setting is missing
+				}
+				int threads = ini.get("Settings", "aithreads", int.class);
+				if (threads > 0){
+					AI_THREADS = threads; //leave the default if the setting is missing
+				}
+				String delay = ini.get("Settings", "aidelay");
+				if (delay != null){
+					try {
+						AI_DELAY = Math.max(0, Long.parseLong(delay.trim())); //leave the default if the setting is missing
+					} catch (NumberFormatException e) {
+						System.err.println("ERROR: aidelay in the settings file is not a number: "+delay);
+					}
+				}
+				String ponder = ini.get("Settings", "aiponder");
+				if (ponder != null){
+					AI_PONDER = ponder.trim().equals("1"); //leave the default if the setting is missing
+				}
 			}
 			ini.store();
 		} catch (IOException e1) {
@@ -0,0 +1,168 @@
+package com.cs471.ninemanmill;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Opening book for the placement phase: for positions reached in the first placements, the places that have done well, each with a weight.
+ * The AI looks the position up before it searches, and if the book has it, places right away on one of the book's places, picked at random by weight.
+ * This gives it good and varied openings without spending its time budget on them. The book is made offline by OpeningBookGenerator.
+ *
+ * The book is a DatabaseFile of 12 byte entries sorted by the position's Zobrist key: the key (8 bytes), the point to place on (1 byte),
+ * an unused byte, and the weight (2 bytes, unsigned). A position has one entry for every book place, and is found by binary search on the mapped file.
+ * @author Michael Perez
+ *
+ */
+public class OpeningBook {
+	public final static String DEFAULT_FILE = "openingbook.nmob"; //file the game loads the book from, next to nmm_settings.ini
+	public final static int MAX_WEIGHT = 0xFFFF;
+	final static int ENTRY_BYTES = 12;
+	private final static int MAGIC = 0x4E4D4F42; //"NMOB", first bytes of a book file
+	private final static int VERSION = 1;
+	private static OpeningBook defaultBook; //loaded the first time getDefault() is called
+
+	private final ByteBuffer entries; //sorted entries, shared by every thread probing the book
+	private final int count; //number of entries
+
+	/**
+	 * Makes a book from its entries.
+	 * @param entries entries in the book's format, sorted by key
+	 */
+	OpeningBook(ByteBuffer entries){
+		this.entries = entries;
+		count = entries.capacity() / ENTRY_BYTES;
+	}
+
+	/**
+	 * Gets the book the game uses, loading it from DEFAULT_FILE the first time. If there is no book, or it can't be read, the book is empty and the AI searches every placement.
+	 * @return the shared book
+	 */
+	public static synchronized OpeningBook getDefault(){
+		if (defaultBook == null){
+			File file = new File(DEFAULT_FILE);
+			try {
+				defaultBook = file.isFile() ? load(file) : new OpeningBook(ByteBuffer.allocate(0));
+			} catch (IOException e) {
+				System.err.println("Could not load the opening book: "+e.getMessage());
+				defaultBook = new OpeningBook(ByteBuffer.allocate(0));
+			}
+		}
+		return defaultBook;
+	}
+
+	/**
+	 * Loads a book file. It is memory mapped, not read.
+	 * @param file book file
+	 * @return the book
+	 * @throws IOException if the file can't be mapped or is not a book
+	 */
+	public static OpeningBook load(File file) throws IOException {
+		ByteBuffer entries = DatabaseFile.map(file, MAGIC, VERSION);
+		if (entries.capacity() % ENTRY_BYTES != 0){
+			throw new IOException(file+" does not hold whole book entries");
+		}
+		return new OpeningBook(entries);
+	}
+
+	/**
+	 * Writes entries made with putEntry() to a book file.
+	 * @param file file to write
+	 * @param entries entries, sorted by key
+	 * @throws IOException if the file can't be written
+	 */
+	static void write(File file, byte[] entries) throws IOException {
+		DatabaseFile.write(file, MAGIC, VERSION, entries);
+	}
+
+	/**
+	 * Adds an entry to a buffer of entries being made for a book.
+	 * @param buffer buffer to add to, at its position
+	 * @param key Zobrist key of the position
+	 * @param point point to place on
+	 * @param weight how often to pick this place, from 1 to MAX_WEIGHT
+	 */
+	static void putEntry(ByteBuffer buffer, long key, int point, int weight){
+		buffer.putLong(key).put((byte) point).put((byte) 0).putShort((short) weight);
+	}
+
+	/**
+	 * Gets the number of entries in the book.
+	 * @return number of book places, over all positions
+	 */
+	public int size(){
+		return count;
+	}
+
+	/**
+	 * Picks a place from the book for the player whose turn it is.
+	 * @param board board to place on. It is not changed.
+	 * @param random random numbers to pick with
+	 * @return point to place on, or -1 if the book doesn't have this position
+	 */
+	public int probe(GameBoard board, Random random){
+		if (count == 0 || !board.isPlacementPhase()){
+			return -1;
+		}
+		long key = board.getZobristKey();
+		int first = firstEntry(key);
+		int total = 0;
+		for (int i = first; i < count && keyAt(i) == key; i++){
+			if (isEmpty(board, pointAt(i))){
+				total += weightAt(i);
+			}
+		}
+		if (total == 0){
+			return -1;
+		}
+		int pick = random.nextInt(total);
+		for (int i = first; ; i++){
+			if (!isEmpty(board, pointAt(i))) continue;
+			pick -= weightAt(i);
+			if (pick < 0){
+				return pointAt(i);
+			}
+		}
+	}
+
+	/**
+	 * Finds the first entry with a key, or where it would be, by binary search.
+	 * @param key Zobrist key to find
+	 * @return index of the first entry whose key is not less than key
+	 */
+	private int firstEntry(long key){
+		int low = 0, high = count;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (keyAt(middle) < key){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private long keyAt(int entry){
+		return entries.getLong(entry * ENTRY_BYTES);
+	}
+
+	private int pointAt(int entry){
+		return entries.get(entry * ENTRY_BYTES + 8);
+	}
+
+	private int weightAt(int entry){
+		return entries.getShort(entry * ENTRY_BYTES + 10) & 0xFFFF;
+	}
+
+	/**
+	 * Checks a book point can be placed on, in case two positions have the same key.
+	 * @param board board to place on
+	 * @param point point index
+	 * @return true if the point is empty
+	 */
+	private static boolean isEmpty(GameBoard board, int point){
+		return point >= 0 && point < BitBoard.POINTS && board.checkIfEmptyPlace(point >> 3, point & 7);
+	}
+}
@@ -0,0 +1,237 @@
+package com.cs471.ninemanmill;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes the opening book by self-play. The AI plays itself many times with a generous time budget, and every place it picks in the first placements of a game
+ * is scored by how that game ended for the player who placed it: 2 for a win and 1 for a draw. The book keeps the places that were played often enough and scored,
+ * weighted by their score, so places that won more often and were picked more often are played more often.
+ * To keep the games from all being the same, a place is sometimes picked at random instead of by the AI, and the AI players don't use the book being made.
+ *
+ * Usage: java com.cs471.ninemanmill.OpeningBookGenerator [options]
+ *  -games N     games to play (default 200)
+ *  -plies N     placements at the start of each game that go in the book (default 8)
+ *  -time ms     time budget of each AI move (default 500)
+ *  -level N     AI difficulty that plays the games (default 4, extreme)
+ *  -explore N   percent of book placements picked at random (default 10)
+ *  -min N       games a place has to be played in to go in the book (default 2)
+ *  -threads N   games played at the same time (default one per processor)
+ *  -maxplies N  plies before a game is called a draw (default 300)
+ *  -out file    file to write the book to (default OpeningBook.DEFAULT_FILE)
+ * @author Michael Perez
+ *
+ */
+public class OpeningBookGenerator {
+	private int games = 200;
+	private int plies = 8;
+	private long timeBudget = 500;
+	private int level = AIPlayer.AI_IMPOSSIBLE;
+	private int explore = 10;
+	private int minGames = 2;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int maxPlies = 300;
+	private File file = new File(OpeningBook.DEFAULT_FILE);
+	private final Map<Long, BookPosition> positions = new HashMap<Long, BookPosition>(); //every book position played, by Zobrist key
+
+	/**
+	 * The places played in one position and how they scored.
+	 */
+	private static class BookPosition {
+		final int[] games = new int[BitBoard.POINTS]; //games each point was placed on in
+		final int[] points = new int[BitBoard.POINTS]; //score of each point, 2 for a win and 1 for a draw
+	}
+
+	/**
+	 * Runs the generator from the command line.
+	 * @param args options, see the class description
+	 */
+	public static void main(String[] args){
+		OpeningBookGenerator generator = new OpeningBookGenerator();
+		try {
+			generator.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java com.cs471.ninemanmill.OpeningBookGenerator [-games N] [-plies N] [-time ms] [-level N] [-explore N] [-min N] [-threads N] [-maxplies N] [-out file]");
+			System.exit(1);
+		}
+		try {
+			generator.run();
+		} catch (IOException e) {
+			System.err.println("Could not write the book: "+e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads the options.
+	 * @param args command line arguments
+	 * @throws IllegalArgumentException if an argument can't be understood
+	 */
+	private void parseArguments(String[] args){
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("-games")){
+				games = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-plies")){
+				plies = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-time")){
+				timeBudget = CommandLine.longValue(args, ++i);
+			} else if (args[i].equals("-level")){
+				level = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-explore")){
+				explore = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-min")){
+				minGames = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-threads")){
+				threads = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-maxplies")){
+				maxPlies = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-out")){
+				file = new File(CommandLine.value(args, ++i));
+			} else {
+				throw new IllegalArgumentException("Unknown option "+args[i]);
+			}
+		}
+		if (games < 1 || plies < 1 || threads < 1 || maxPlies < 1 || minGames < 1 || level < AIPlayer.AI_MEDIUM || level > AIPlayer.AI_IMPOSSIBLE){
+			throw new IllegalArgumentException("-games, -plies, -threads, -maxplies and -min must be at least 1, and -level from 2 to 4");
+		}
+	}
+
+	/**
+	 * Plays every game, then writes the book.
+	 * @throws IOException if the book can't be written
+	 */
+	private void run() throws IOException {
+		System.out.println("Playing "+games+" games on "+threads+" threads, booking the first "+plies+" placements");
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<SelfPlayGame> selfPlay = new ArrayList<SelfPlayGame>(games);
+		for (int g = 0; g < games; g++){
+			selfPlay.add(new SelfPlayGame(g));
+		}
+		HeadlessGame.playAll(pool, selfPlay);
+		pool.shutdownNow();
+
+		byte[] entries = makeEntries();
+		OpeningBook.write(file, entries);
+		System.out.println("Wrote "+entries.length / OpeningBook.ENTRY_BYTES+" book places to "+file);
+	}
+
+	/**
+	 * Adds the places of a finished game to the positions they were played in.
+	 * @param keys Zobrist key of each booked position of the game
+	 * @param placed point placed on in each of those positions
+	 * @param movers player who placed, GameBoard.PLAYER1_TURN or GameBoard.PLAYER2_TURN
+	 * @param count number of booked placements
+	 * @param result result of the game
+	 */
+	private synchronized void addGame(long[] keys, int[] placed, int[] movers, int count, int result){
+		for (int i = 0; i < count; i++){
+			BookPosition position = positions.get(keys[i]);
+			if (position == null){
+				position = new BookPosition();
+				positions.put(keys[i], position);
+			}
+			position.games[placed[i]]++;
+			if (result == GameState.RESULT_NONE){
+				position.points[placed[i]] += 1;
+			} else if (result == movers[i]){
+				position.points[placed[i]] += 2;
+			}
+		}
+	}
+
+	/**
+	 * Turns the places played into sorted book entries, keeping the ones played in at least minGames games that scored.
+	 * @return entries in the book's format
+	 */
+	private byte[] makeEntries(){
+		ArrayList<Long> keys = new ArrayList<Long>(positions.keySet());
+		Collections.sort(keys);
+		ByteBuffer entries = ByteBuffer.allocate(keys.size() * BitBoard.POINTS * OpeningBook.ENTRY_BYTES);
+		for (long key : keys){
+			BookPosition position = positions.get(key);
+			for (int point = 0; point < BitBoard.POINTS; point++){
+				if (position.games[point] >= minGames && position.points[point] > 0){
+					OpeningBook.putEntry(entries, key, point, Math.min(position.points[point], OpeningBook.MAX_WEIGHT));
+				}
+			}
+		}
+		byte[] used = new byte[entries.position()];
+		System.arraycopy(entries.array(), 0, used, 0, used.length);
+		return used;
+	}
+
+	/**
+	 * One self-play game, played on a pool thread.
+	 */
+	private class SelfPlayGame implements Callable<String>, HeadlessGame.PlyListener {
+		private final Random random;
+		private final long[] keys = new long[plies]; //Zobrist key of each booked position
+		private final int[] placed = new int[plies]; //point placed on in each of them
+		private final int[] movers = new int[plies]; //player who placed
+		private int booked; //placements booked so far
+
+		SelfPlayGame(int number){
+			random = new Random(number);
+		}
+
+		/**
+		 * Plays the game to the end, or until it is a draw by the ply limit, and books its first placements.
+		 * @return short description of the game
+		 */
+		@Override
+		public String call(){
+			AIPlayer player1 = HeadlessGame.newPlayer(GameBoard.PLAYER1, level);
+			AIPlayer player2 = HeadlessGame.newPlayer(GameBoard.PLAYER2, level);
+			player1.setOpeningBook(null); //play the openings out, instead of repeating an old book
+			player2.setOpeningBook(null);
+			HeadlessGame game = new HeadlessGame(player1, timeBudget, player2, timeBudget);
+			int result = game.play(new GameBoard(true), maxPlies, this);
+			addGame(keys, placed, movers, booked, result);
+			return game.toString();
+		}
+
+		/**
+		 * Books the first placements of the game, sometimes replacing the AI's place with a random one.
+		 */
+		@Override
+		public int turnPicked(GameBoard board, int ply, int move, long nanos){
+			if (ply < plies && board.isPlacementPhase()){
+				if (random.nextInt(100) < explore){
+					move = randomPlace(board, move);
+				}
+				keys[booked] = board.getZobristKey();
+				placed[booked] = Move.to(move);
+				movers[booked++] = board.getTurn();
+			}
+			return move;
+		}
+
+		/**
+		 * Picks a random empty point to place on, to explore openings the AI would not play. Places that form a mill are left to the AI, which picks what to capture.
+		 * @param board board to place on
+		 * @param move the AI's move, kept if the random place would form a mill
+		 * @return encoded placement
+		 */
+		private int randomPlace(GameBoard board, int move){
+			Team team = (board.getTurn() == GameBoard.PLAYER1_TURN) ? board.getTeam1() : board.getTeam2();
+			ArrayList<GamePiece> empty = board.getAllEmpty();
+			GamePiece place = empty.get(random.nextInt(empty.size()));
+			if (board.detectNineManMill(team, place.getR(), place.getP())){
+				return move;
+			}
+			return Move.encode(Move.NO_POINT, BitBoard.index(place.getR(), place.getP()), Move.NO_POINT);
+		}
+	}
+}
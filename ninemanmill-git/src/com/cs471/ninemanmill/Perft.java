@@ -0,0 +1,216 @@
+package com.cs471.ninemanmill;
+
+/**
+ * Perft ("performance test") counts the positions that can be reached from a position in exactly N turns, by playing every legal move to that depth.
+ * The counts only come out right if move generation, placing, moving, flying, mills and captures all follow the rules, so they are a check on all of them,
+ * and the time it takes gives a speed for the move generator.
+ *
+ * Every turn is one move plus its capture, so a mill that can take any of three pieces counts as three moves. Finished games have no moves.
+ * The count is done on a GameBoard with generateLegalMoves() and makeMove()/unmakeMove(), and can also be done a second, independent way on BitBoard states
+ * to check the two against each other.
+ *
+ * Usage: java com.cs471.ninemanmill.Perft [-nofly] [-divide] [-check] [-position board hand1 hand2 player] depth
+ *  -divide    prints the count below each move of the position
+ *  -check     also counts with BitBoard and compares the results
+ *  -position  starts from a 24 character board (like "1EE2EEEE..."), the pieces each player has in hand, and the player to move (1 or 2)
+ * @author Michael Perez
+ *
+ */
+public class Perft {
+
+	private Perft(){
+		//static methods only
+	}
+
+	/**
+	 * Runs perft from the command line.
+	 * @param args options and depth, see the class description
+	 */
+	public static void main(String[] args){
+		boolean allowFlyMode = true, divide = false, check = false;
+		long state = BitBoard.START_STATE;
+		int depth = -1;
+		try {
+			for (int i = 0; i < args.length; i++){
+				if (args[i].equals("-nofly")){
+					allowFlyMode = false;
+				} else if (args[i].equals("-divide")){
+					divide = true;
+				} else if (args[i].equals("-check")){
+					check = true;
+				} else if (args[i].equals("-position")){
+					String board = CommandLine.value(args, ++i);
+					int hand1 = CommandLine.intValue(args, ++i, "-position");
+					int hand2 = CommandLine.intValue(args, ++i, "-position");
+					int side = BitBoard.sideOfTurn(CommandLine.intValue(args, ++i, "-position"));
+					state = BitBoard.fromString(board, hand1, hand2, side);
+				} else if (args[i].startsWith("-")){
+					throw new IllegalArgumentException("Unknown option "+args[i]);
+				} else {
+					depth = CommandLine.intArgument(args[i], "depth");
+				}
+			}
+			if (depth < 0){
+				throw new IllegalArgumentException("A depth is needed");
+			}
+		} catch (IllegalArgumentException e) {
+			//bad numbers, missing values and bad boards all end up here
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java com.cs471.ninemanmill.Perft [-nofly] [-divide] [-check] [-position board hand1 hand2 player] depth");
+			System.exit(1);
+		}
+
+		GameBoard board = GameBoard.fromBitBoard(state, allowFlyMode);
+		System.out.println(board);
+		long start = System.nanoTime();
+		long nodes = 0;
+		if (divide && depth > 0){
+			int[] moves = new int[GameBoard.MAX_MOVES];
+			int count = board.generateLegalMoves(moves, 0);
+			int[] stack = new int[depth * GameBoard.MAX_MOVES];
+			for (int i = 0; i < count; i++){
+				board.makeMove(moves[i]);
+				long moveNodes = perft(board, depth - 1, stack, 0);
+				board.unmakeMove(moves[i]);
+				nodes += moveNodes;
+				String line = Move.notation(moves[i])+": "+moveNodes;
+				if (check){
+					long expected = perftBitBoard(BitBoard.switchSide(applyBits(state, moves[i])), depth - 1, allowFlyMode);
+					if (expected != moveNodes){
+						line += "  MISMATCH, BitBoard counts "+expected;
+					}
+				}
+				System.out.println(line);
+			}
+		} else {
+			nodes = perft(board, depth);
+		}
+		long nanos = System.nanoTime() - start;
+		System.out.println("Depth "+depth+": "+nodes+" nodes in "+nanos / 1000000+"ms ("+(long) (nodes / Math.max(nanos / 1e9, 1e-9))+" nodes/s)");
+
+		if (check){
+			start = System.nanoTime();
+			long expected = perftBitBoard(state, depth, allowFlyMode);
+			nanos = System.nanoTime() - start;
+			System.out.println("BitBoard: "+expected+" nodes in "+nanos / 1000000+"ms"+((expected == nodes) ? ", matches" : ", MISMATCH"));
+			if (expected != nodes){
+				System.exit(2);
+			}
+		}
+	}
+
+	/**
+	 * Counts the positions reached from a board in exactly depth turns. The board is changed while counting, and put back the way it was.
+	 * @param board board to count from
+	 * @param depth number of turns to play
+	 * @return number of positions at that depth
+	 */
+	public static long perft(GameBoard board, int depth){
+		return perft(board, depth, new int[Math.max(depth, 1) * GameBoard.MAX_MOVES], 0);
+	}
+
+	/**
+	 * Counts the positions reached from a board, with the moves of each depth kept in a slice of one buffer.
+	 * @param board board to count from
+	 * @param depth number of turns to play
+	 * @param stack move buffer with room for depth * GameBoard.MAX_MOVES moves after start
+	 * @param start first slot this depth can use
+	 * @return number of positions at that depth
+	 */
+	private static long perft(GameBoard board, int depth, int[] stack, int start){
+		if (depth == 0){
+			return 1;
+		}
+		int end = board.generateLegalMoves(stack, start);
+		if (depth == 1){
+			return end - start; //every move leads to one position, no need to make them
+		}
+		long nodes = 0;
+		for (int i = start; i < end; i++){
+			board.makeMove(stack[i]);
+			nodes += perft(board, depth - 1, stack, end);
+			board.unmakeMove(stack[i]);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Counts the same positions as perft(), but only with BitBoard states and without GameBoard, Team or the move generator, so the two can be checked against each other.
+	 * @param state packed state to count from
+	 * @param depth number of turns to play
+	 * @param allowFlyMode if pieces can fly when a side is down to three
+	 * @return number of positions at that depth
+	 */
+	public static long perftBitBoard(long state, int depth, boolean allowFlyMode){
+		if (depth == 0){
+			return 1;
+		}
+		if (isOver(state, allowFlyMode)){
+			return 0;
+		}
+		int side = BitBoard.sideToMove(state);
+		long nodes = 0;
+		if (BitBoard.inHand(state, side) > 0){
+			for (int empty = BitBoard.emptyPoints(state); empty != 0; empty &= empty - 1){
+				int to = Integer.numberOfTrailingZeros(empty);
+				nodes += perftAfterMove(BitBoard.place(state, to), to, depth, allowFlyMode);
+			}
+		} else {
+			for (int own = BitBoard.occupancy(state, side); own != 0; own &= own - 1){
+				int from = Integer.numberOfTrailingZeros(own);
+				for (int targets = BitBoard.destinations(state, from, allowFlyMode); targets != 0; targets &= targets - 1){
+					int to = Integer.numberOfTrailingZeros(targets);
+					nodes += perftAfterMove(BitBoard.move(state, from, to), to, depth, allowFlyMode);
+				}
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Finishes a turn in perftBitBoard() after the piece has been placed or moved: every capture a mill allows is its own move.
+	 * @param state state after the place or move, with the turn not switched yet
+	 * @param to point the piece arrived on
+	 * @param depth depth of the turn being finished
+	 * @param allowFlyMode if pieces can fly when a side is down to three
+	 * @return positions below this move
+	 */
+	private static long perftAfterMove(long state, int to, int depth, boolean allowFlyMode){
+		int removable = BitBoard.formsMill(state, to) ? BitBoard.removable(state) : 0;
+		if (removable == 0){
+			return perftBitBoard(BitBoard.switchSide(state), depth - 1, allowFlyMode);
+		}
+		long nodes = 0;
+		for (; removable != 0; removable &= removable - 1){
+			nodes += perftBitBoard(BitBoard.switchSide(BitBoard.remove(state, Integer.numberOfTrailingZeros(removable))), depth - 1, allowFlyMode);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Checks if the game is over in a state, by the same rules as GameBoard.getResult().
+	 * @param state packed state
+	 * @param allowFlyMode if pieces can fly when a side is down to three
+	 * @return true if a side has fewer than three pieces left, or the side to move has nothing to place and can't move
+	 */
+	private static boolean isOver(long state, boolean allowFlyMode){
+		for (int side = 0; side < 2; side++){
+			if (BitBoard.pieceCount(state, side) + BitBoard.inHand(state, side) < 3){
+				return true;
+			}
+		}
+		return !BitBoard.hasMoves(state, allowFlyMode);
+	}
+
+	/**
+	 * Plays an encoded move on a BitBoard state, without switching the turn.
+	 * @param state packed state
+	 * @param move encoded legal move
+	 * @return state after the move and its capture
+	 */
+	private static long applyBits(long state, int move){
+		int from = Move.from(move), to = Move.to(move), capture = Move.capture(move);
+		state = (from == Move.NO_POINT) ? BitBoard.place(state, to) : BitBoard.move(state, from, to);
+		return (capture == Move.NO_POINT) ? state : BitBoard.remove(state, capture);
+	}
+}
@@ -143,10 +143,10 @@ public class PreferencesDialog extends JDialog {
 						NineManMill.PLAY_MUSIC = cbPlayMusic.isSelected();
 						if (parent!=null && parent.gamestate != null){
 							if (NineManMill.PLAY_MUSIC){
-								parent.gamestate.playBackgroundMusic();
+								parent.playBackgroundMusic();
 							} else{
 								//turn it off
-								parent.gamestate.stopBackgroundMusic();
+								parent.stopBackgroundMusic();
 							}
 						}
 						ini.store();
@@ -0,0 +1,86 @@
+package com.cs471.ninemanmill;
+
+/**
+ * A report of how a search is going, which the Searcher sends to its ProgressListener so the UI can show what the AI is thinking.
+ * @author Michael Perez
+ *
+ */
+public class SearchProgress {
+	private final int depth; //depth being searched, or that just finished
+	private final long nodes; //positions searched so far, over all threads
+	private final long nodesPerSecond; //search speed since the search started
+	private final int bestMove; //best move of the deepest depth that finished, Move.NONE if none has yet
+	private final int score; //score of bestMove, for the side searching
+	private final long time; //time (in ms) since the search started
+
+	/**
+	 * Makes a new progress report.
+	 * @param depth depth being searched, or that just finished
+	 * @param nodes positions searched so far
+	 * @param nodesPerSecond search speed
+	 * @param bestMove encoded best move so far, or Move.NONE
+	 * @param score score of the best move
+	 * @param time time (in ms) since the search started
+	 */
+	public SearchProgress(int depth, long nodes, long nodesPerSecond, int bestMove, int score, long time){
+		this.depth = depth;
+		this.nodes = nodes;
+		this.nodesPerSecond = nodesPerSecond;
+		this.bestMove = bestMove;
+		this.score = score;
+		this.time = time;
+	}
+
+	/**
+	 * Gets the depth of this report.
+	 * @return depth being searched, or that just finished
+	 */
+	public int getDepth(){
+		return depth;
+	}
+
+	/**
+	 * Gets the number of positions searched so far.
+	 * @return nodes searched, over all threads
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 * Gets how fast the search is going.
+	 * @return nodes searched per second
+	 */
+	public long getNodesPerSecond(){
+		return nodesPerSecond;
+	}
+
+	/**
+	 * Gets the best move found so far.
+	 * @return encoded move, or Move.NONE if the first depth hasn't finished
+	 */
+	public int getBestMove(){
+		return bestMove;
+	}
+
+	/**
+	 * Gets the score of the best move found so far.
+	 * @return score for the side searching
+	 */
+	public int getScore(){
+		return score;
+	}
+
+	/**
+	 * Gets how long the search has been going.
+	 * @return time in ms
+	 */
+	public long getTime(){
+		return time;
+	}
+
+	@Override
+	public String toString(){
+		return "depth "+depth+", "+nodes+" nodes ("+nodesPerSecond+"/s), best "+Move.notation(bestMove);
+	}
+}
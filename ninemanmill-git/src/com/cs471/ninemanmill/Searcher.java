@@ -0,0 +1,837 @@
+package com.cs471.ninemanmill;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The alpha-beta search the AI uses to pick its moves and placements. It has no UI code, the AI class decides when to search and what to do with the result.
+ * A search is iterative deepening: it searches to depth 1, then 2, and so on until the deepest depth allowed or until its deadline passes, and returns the best root move of the deepest search that finished.
+ *
+ * The search can use several threads. Each thread has its own copy of the board and its own move stack, and all of them share one transposition table.
+ * The root moves of every depth are split between the threads, which take the next unsearched root move until there are none left, searching it against the best score found so far by any thread.
+ * A thread that runs out of root moves becomes a Lazy SMP helper: it searches the root moves again one depth deeper, only to fill the transposition table for the threads that are still busy, until the depth is finished.
+ * With one thread the search runs on the calling thread and behaves exactly like a normal sequential alpha-beta search.
+ *
+ * The search is negamax with principal variation search: every score is for the side to move, and after the first move of a node the others are only searched
+ * with a null window, to prove they are no better. Each depth starts with an aspiration window around the score of the depth before it,
+ * and is only searched again with a full window if the score falls outside it.
+ *
+ * Placements, movement and captures are all searched by the same negamax, with GameBoard.makeMove() playing a whole turn. A move that forms a mill is searched once for every piece
+ * it could take, like GameBoard.generateLegalMoves() gives it, so which piece to take is part of the tree and gets the same look-ahead, transposition table and move ordering as everything else.
+ * The search also runs on from the placement phase into the movement phase, instead of stopping at the last placement.
+ * Where the depth runs out, a quiescence search keeps going through the mills that can still be closed, so no position is scored while a capture is pending.
+ *
+ * Every TIME_CHECK_NODES nodes the search checks if it should stop: because the deadline passed, because stop() was called to move now, or because the thread
+ * that started it was interrupted, which cancels it. This is the only place the clock is checked, even during the first depth, so a deadline is a soft limit that is passed by at most that many nodes.
+ * A listener set with setProgressListener() is told the depth, node count and best move as the search goes.
+ * @author Michael Perez
+ * @author Sean Wright
+ *
+ */
+public class Searcher {
+	public final static int MAX_PLY = 64; //deepest the search can go
+	private final static int TIME_CHECK_NODES = 1024; //how many nodes are searched between checks of the clock
+	private final static int PROGRESS_INTERVAL = 250; //time (in ms) between progress reports while a depth is being searched
+	private final static int WIN_SCORE = 1000000; //score of a won position, the same as evalBoardMove() gives a side that can't move
+	private final static int INFINITE = WIN_SCORE + 1; //bounds of a full window, no score is outside it
+	private final static int ASPIRATION_WINDOW = 16; //half the width of the root window around the score of the last depth
+	private final static int KILLERS = 2; //killer moves kept for each ply
+	private final static int HASH_MOVE_SCORE = 1 << 30; //move ordering scores, see orderMoves()
+	private final static int MILL_SCORE = 1 << 29;
+	private final static int KILLER_SCORE = 1 << 28;
+	private final static int HISTORY_LIMIT = 1 << 27; //history scores are halved when one reaches this
+	private final char playerID; //player this searcher is picking moves for
+	private final int difficulty; //AI difficulty, some heuristics are only used on harder difficulties
+	private final TranspositionTable transpositionTable; //shared by all threads, kept between searches
+	private Tablebase tablebase; //exact results of flying endgames, null to search them like any other position
+	private EvalWeights weights = EvalWeights.getDefault(); //what the evaluation counts are worth
+	private final SearchThread[] searchThreads; //state of each thread that can search
+	private ForkJoinPool pool; //made the first time a search runs on more than one thread
+
+	private volatile long deadline; //time (in ms) the search has to be done by
+	private volatile boolean searchAborted; //set when the deadline passes, the depth being searched is then thrown away
+	private volatile boolean iterationDone; //set when every root move of the current depth has been searched, which stops the helpers
+	private volatile boolean stopRequested; //set by stop(), ends the search like the deadline passing
+	private volatile Thread searchingThread; //thread that started the search, interrupting it cancels the search
+	private int completedDepth; //deepest depth the last search finished
+	private ProgressListener listener; //told how the search is going, null for nobody
+	private long startTime; //time (in ms) the search started
+	private volatile int currentDepth; //depth being searched
+	private volatile int bestSoFar; //best move of the deepest depth that finished, Move.NONE before the first one
+	private volatile int bestScore; //score of bestSoFar
+	private long nextReport; //time (in ms) of the next progress report, only used by the first thread
+
+	/**
+	 * Makes a new searcher.
+	 * @param playerID GameBoard.PLAYER1 or GameBoard.PLAYER2, the player to pick moves for
+	 * @param difficulty AI difficulty, some heuristics are only used on the harder difficulties
+	 * @param threads number of threads to search with, at least 1
+	 * @param ttSizeBits the transposition table holds 2^ttSizeBits positions
+	 */
+	public Searcher(char playerID, int difficulty, int threads, int ttSizeBits){
+		this.playerID = playerID;
+		this.difficulty = difficulty;
+		transpositionTable = new TranspositionTable(ttSizeBits);
+		searchThreads = new SearchThread[Math.max(1, threads)];
+		for (int i = 0; i < searchThreads.length; i++){
+			searchThreads[i] = new SearchThread(i);
+		}
+	}
+
+	/**
+	 * Searches for the best of a list of root moves. A root move that forms a mill is searched with every piece it could take.
+	 * @param gamestate position to search from. It is copied and never changed.
+	 * @param rootMoves encoded moves (or placements) to choose from, for the team whose turn it is in gamestate. Their captures are ignored.
+	 * @param count number of moves in rootMoves
+	 * @param maxDepth deepest depth to search to
+	 * @param deadline time (from System.currentTimeMillis()) to stop searching at. Like every deadline here it is only checked every TIME_CHECK_NODES nodes, so the search can end a little after it.
+	 * @return the best root move, with the piece it should take if it forms a mill
+	 */
+	public int search(GameBoard gamestate, int[] rootMoves, int count, int maxDepth, long deadline){
+		int[] turns = rootTurns(gamestate, rootMoves, count);
+		if (turns.length == 0){
+			return rootMoves[0]; //the game is over, there is nothing to search
+		}
+		return searchTurns(gamestate, turns, maxDepth, deadline);
+	}
+
+	/**
+	 * Searches for the piece to take after a mill, when the move that formed it was picked without this searcher (or is already on the board).
+	 * Each piece the rules allow taking is a root move that only captures, and the rest is searched like any other turn.
+	 * @param gamestate board with the mill formed and nothing taken yet. Whose turn it says doesn't matter, the player this searcher is for takes the piece. It is copied and never changed.
+	 * @param maxDepth deepest depth to search to
+	 * @param deadline time (from System.currentTimeMillis()) to stop searching at
+	 * @return point of the piece to take, or Move.NO_POINT if the opponent has no pieces on the board
+	 */
+	public int searchCapture(GameBoard gamestate, int maxDepth, long deadline){
+		GameBoard board = new GameBoard(gamestate);
+		board.CURRENT_TURN = (playerID == GameBoard.PLAYER1) ? GameBoard.PLAYER1_TURN : GameBoard.PLAYER2_TURN;
+		int removable = BitBoard.removable(board.toBitBoard());
+		int[] turns = new int[Integer.bitCount(removable)];
+		if (turns.length == 0){
+			return Move.NO_POINT;
+		}
+		for (int i = 0; removable != 0; i++, removable &= removable - 1){
+			turns[i] = Move.encode(Move.NO_POINT, Move.NO_POINT, Integer.numberOfTrailingZeros(removable));
+		}
+		return Move.capture(searchTurns(board, turns, maxDepth, deadline));
+	}
+
+	/**
+	 * Searches every legal turn of the side to move, for whichever player that is. Used to ponder on the opponent's time.
+	 * @param gamestate position to search from. It is copied and never changed.
+	 * @param maxDepth deepest depth to search to
+	 * @param deadline time (from System.currentTimeMillis()) to stop searching at
+	 * @return the best turn, or Move.NONE if the game is over
+	 */
+	public int searchAll(GameBoard gamestate, int maxDepth, long deadline){
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		int count = gamestate.generateLegalMoves(moves, 0);
+		if (count == 0){
+			return Move.NONE;
+		}
+		return searchTurns(gamestate, Arrays.copyOf(moves, count), maxDepth, deadline);
+	}
+
+	/**
+	 * Gets the best turn the transposition table has for a position, if a search has been through it. It is checked to be legal, as another position could have the same slot.
+	 * @param gamestate position to look up
+	 * @return encoded turn, or Move.NONE if the table doesn't have one
+	 */
+	public int hashMove(GameBoard gamestate){
+		long entry = transpositionTable.probe(gamestate.getZobristKey());
+		if (entry == TranspositionTable.MISS){
+			return Move.NONE;
+		}
+		int move = TranspositionTable.moveOf(entry);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		int count = gamestate.generateLegalMoves(moves, 0);
+		for (int i = 0; i < count; i++){
+			if (moves[i] == move){
+				return move;
+			}
+		}
+		return Move.NONE;
+	}
+
+	/**
+	 * Runs the iterative deepening search over a list of whole turns. The search can be aborted at any depth, even the first: then the best turn of the deepest depth that finished is returned,
+	 * or if none did, the best turn the first depth had searched, or the first turn.
+	 * @param gamestate position to search from, with the turns' player to move. It is copied and never changed.
+	 * @param turns encoded turns to choose from, including their captures. The list is reordered with the best turn first.
+	 * @param maxDepth deepest depth to search to
+	 * @param deadline time (from System.currentTimeMillis()) to stop searching at
+	 * @return the best turn
+	 */
+	private int searchTurns(GameBoard gamestate, int[] turns, int maxDepth, long deadline){
+		int count = turns.length;
+		this.deadline = deadline;
+		searchAborted = false;
+		stopRequested = false;
+		searchingThread = Thread.currentThread();
+		completedDepth = 0;
+		startTime = System.currentTimeMillis();
+		nextReport = startTime + PROGRESS_INTERVAL;
+		bestSoFar = Move.NONE;
+		bestScore = 0;
+		transpositionTable.newSearch();
+		for (SearchThread thread : searchThreads){
+			thread.board = new GameBoard(gamestate); //each thread makes and unmakes moves on its own copy of the board
+			thread.nodes = 0;
+			thread.newSearch();
+		}
+
+		int bestMove = turns[0];
+		int score = 0;
+		for (int depth = 1; depth <= maxDepth; depth++){
+			currentDepth = depth;
+			//aspiration window: expect about the score of the last depth, and only search again with a full window if the score falls outside it
+			int alpha = -INFINITE, beta = INFINITE;
+			if (depth > 1 && Math.abs(score) < Tablebase.WIN_SCORE - MAX_PLY){
+				alpha = score - ASPIRATION_WINDOW;
+				beta = score + ASPIRATION_WINDOW;
+			}
+			RootResult iteration;
+			while (true){
+				iteration = (searchThreads.length > 1) ? searchRootParallel(turns, count, depth, alpha, beta) : searchThreads[0].searchRoot(turns, count, depth, alpha, beta);
+				if (searchAborted) break;
+				if (iteration.score <= alpha && alpha > -INFINITE){
+					alpha = -INFINITE; //failed low, every move is worse than expected
+				} else if (iteration.score >= beta && beta < INFINITE){
+					beta = INFINITE; //failed high, a move is better than expected
+				} else {
+					break;
+				}
+			}
+			if (searchAborted){
+				//out of time, this depth did not finish. If not even the first one did, its best root move so far is still better than none.
+				if (depth == 1 && iteration.move != Move.NONE){
+					bestMove = iteration.move;
+				}
+				break;
+			}
+			bestMove = iteration.move;
+			score = iteration.score;
+			for (int i = 0; i < count; i++){
+				if (turns[i] == bestMove){
+					//search the best move first next time
+					turns[i] = turns[0];
+					turns[0] = bestMove;
+					break;
+				}
+			}
+			completedDepth = depth;
+			bestSoFar = bestMove;
+			bestScore = score;
+			report(depth);
+		}
+		searchingThread = null;
+		return bestMove;
+	}
+
+	/**
+	 * Gets the whole turns of a list of root moves: the moves that don't form a mill as they are, and the ones that do once for every piece they could take.
+	 * @param gamestate position the moves are for
+	 * @param rootMoves encoded moves, their captures are ignored
+	 * @param count number of moves in rootMoves
+	 * @return legal turns, in the order of rootMoves
+	 */
+	private static int[] rootTurns(GameBoard gamestate, int[] rootMoves, int count){
+		int[] legal = new int[GameBoard.MAX_MOVES];
+		int legalCount = gamestate.generateLegalMoves(legal, 0);
+		int[] turns = new int[legalCount];
+		int n = 0;
+		for (int i = 0; i < count; i++){
+			for (int j = 0; j < legalCount; j++){
+				if (Move.from(legal[j]) == Move.from(rootMoves[i]) && Move.to(legal[j]) == Move.to(rootMoves[i])){
+					turns[n++] = legal[j];
+				}
+			}
+		}
+		return Arrays.copyOf(turns, n);
+	}
+
+	/**
+	 * Sets the endgame tablebase the search looks positions up in. A position the tablebase knows is not searched any further.
+	 * @param tablebase tablebase to probe, or null for none
+	 */
+	public void setTablebase(Tablebase tablebase){
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Sets the weights the evaluation uses. Scores in the transposition table were made with the old weights, so it should be cleared if it matters.
+	 * @param weights evaluation weights
+	 */
+	public void setWeights(EvalWeights weights){
+		this.weights = weights;
+	}
+
+	/**
+	 * Empties the transposition table, so the next search does not benefit from the ones before it. Used when timing the same search over and over.
+	 */
+	public void clearTable(){
+		transpositionTable.clear();
+	}
+
+	/**
+	 * Sets the listener the search tells how it is going. It is told when each depth finishes, and every PROGRESS_INTERVAL ms while one is being searched.
+	 * It is called from the searching threads, so it has to be quick and safe to call from any thread.
+	 * @param listener listener to tell, or null for none
+	 */
+	public void setProgressListener(ProgressListener listener){
+		this.listener = listener;
+	}
+
+	/**
+	 * Stops the search that is running, like its deadline passing: it returns the best move of the deepest depth that finished, or the best one the first depth has found if none did.
+	 * Does nothing if no search is running. To throw a search away instead, interrupt the thread that is running it.
+	 */
+	public void stop(){
+		stopRequested = true;
+	}
+
+	/**
+	 * Moves the deadline of the search that is running, like when a search that was started without one now has to give an answer.
+	 * @param deadline time (from System.currentTimeMillis()) to stop searching at
+	 */
+	public void setDeadline(long deadline){
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Tells the progress listener how the search is going.
+	 * @param depth depth to report, the one being searched or the one that just finished
+	 */
+	private void report(int depth){
+		ProgressListener listener = this.listener;
+		if (listener != null){
+			long elapsed = System.currentTimeMillis() - startTime;
+			long nodes = getNodes();
+			listener.searchProgress(new SearchProgress(depth, nodes, nodes * 1000 / Math.max(1, elapsed), bestSoFar, bestScore, elapsed));
+		}
+	}
+
+	/**
+	 * Gets the deepest depth the last search finished.
+	 * @return depth of the move the last search returned
+	 */
+	public int getCompletedDepth(){
+		return completedDepth;
+	}
+
+	/**
+	 * Gets the number of positions the last search looked at, over all threads.
+	 * @return number of nodes searched
+	 */
+	public long getNodes(){
+		long nodes = 0;
+		for (SearchThread thread : searchThreads){
+			nodes += thread.nodes;
+		}
+		return nodes;
+	}
+
+	/**
+	 * Searches one depth with every thread, splitting the root moves between them.
+	 * @param rootMoves root moves, best first
+	 * @param count number of root moves
+	 * @param depth depth to search to
+	 * @param alpha lower bound of the root window
+	 * @param beta upper bound of the root window
+	 * @return best root move of this depth and its score
+	 */
+	private RootResult searchRootParallel(final int[] rootMoves, final int count, final int depth, final int alpha, final int beta){
+		if (pool == null){
+			pool = new ForkJoinPool(searchThreads.length);
+		}
+		iterationDone = false;
+		final AtomicInteger next = new AtomicInteger(); //index of the next root move nobody has taken yet
+		final AtomicInteger finished = new AtomicInteger(); //root moves that have been searched
+		final RootResult result = new RootResult();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(searchThreads.length);
+		for (final SearchThread thread : searchThreads){
+			tasks.add(new Callable<Void>(){
+				@Override
+				public Void call(){
+					thread.searchRootShared(rootMoves, count, depth, alpha, beta, next, finished, result);
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> task : pool.invokeAll(tasks)){
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			searchAborted = true;
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException("A search thread failed", e.getCause());
+		}
+		return result;
+	}
+
+	/**
+	 * The best root move found so far by any of the threads searching the current depth.
+	 */
+	private static class RootResult {
+		int move = Move.NONE;
+		int score = Integer.MIN_VALUE;
+
+		/**
+		 * Offers the score of a searched root move. It replaces the best move if it is better.
+		 * @param move root move
+		 * @param score score of the move
+		 */
+		synchronized void offer(int move, int score){
+			if (this.move == Move.NONE || score > this.score){
+				this.move = move;
+				this.score = score;
+			}
+		}
+
+		/**
+		 * Gets the best score so far, which is the alpha the next root moves are searched with.
+		 * @return best score, or Integer.MIN_VALUE if no root move has been searched yet
+		 */
+		synchronized int score(){
+			return score;
+		}
+	}
+
+	/**
+	 * The state one thread needs to search: its own board, move stack and node count. The methods here are the alpha-beta search itself.
+	 */
+	private class SearchThread {
+		private final int id; //number of this thread, used to spread the helpers over different root moves
+		private final int[] moveStack = new int[MAX_PLY * GameBoard.MAX_MOVES]; //encoded moves of every ply of the search, GameBoard.MAX_MOVES slots per ply
+		private GameBoard board; //board this thread searches on
+		private long nodes; //nodes searched, used to only check the clock every so often
+		private boolean helping; //true while this thread is a Lazy SMP helper
+		private final int[] scoreStack = new int[MAX_PLY * GameBoard.MAX_MOVES]; //ordering score of each move in moveStack
+		private final int[][] killers = new int[MAX_PLY][KILLERS]; //quiet moves that caused a cutoff at each ply, newest first
+		private final int[][][] history = new int[2][Move.NO_POINT + 1][BitBoard.POINTS]; //history[side][from][to], how much each quiet move has caused cutoffs
+		private final int[][] captureHistory = new int[2][BitBoard.POINTS]; //captureHistory[side][point], how much taking the piece on each point has caused cutoffs
+
+		SearchThread(int id){
+			this.id = id;
+		}
+
+		/**
+		 * Searches every root move to a depth on this thread alone. The first root move is searched with the whole window, and the others with a null window
+		 * that only proves they aren't better, searching them again with the whole window if they are.
+		 * @param rootMoves root moves, best first
+		 * @param count number of root moves
+		 * @param depth depth to search to
+		 * @param alpha lower bound of the root window
+		 * @param beta upper bound of the root window
+		 * @return best root move and its score. A score at or outside the window is only a bound.
+		 */
+		RootResult searchRoot(int[] rootMoves, int count, int depth, int alpha, int beta){
+			RootResult result = new RootResult();
+			for (int j = 0; j < count; j++){
+				board.makeMove(rootMoves[j]);
+				int val = searchRootMove(j == 0, alpha, beta, depth);
+				board.unmakeMove(rootMoves[j]);
+				if (stopped()) break;
+				result.offer(rootMoves[j], val);
+				alpha = Math.max(alpha, val);
+				if (alpha >= beta) break; //failed high, the window has to be widened anyway
+			}
+			return result;
+		}
+
+		/**
+		 * Takes root moves nobody has searched yet and searches them, until there are none left. Then it helps the other threads until the depth is finished.
+		 * Every root move but the first is searched with a null window at the best score any thread has found so far, so moves that can't beat it are cut off quickly.
+		 * @param rootMoves root moves, best first
+		 * @param count number of root moves
+		 * @param depth depth to search to
+		 * @param alpha lower bound of the root window
+		 * @param beta upper bound of the root window
+		 * @param next index of the next root move nobody has taken
+		 * @param finished number of root moves that have been searched
+		 * @param result best root move so far
+		 */
+		void searchRootShared(int[] rootMoves, int count, int depth, int alpha, int beta, AtomicInteger next, AtomicInteger finished, RootResult result){
+			helping = false;
+			int j;
+			while ((j = next.getAndIncrement()) < count){
+				int bound = Math.max(alpha, result.score());
+				if (bound < beta){
+					board.makeMove(rootMoves[j]);
+					int val = searchRootMove(j == 0, bound, beta, depth);
+					board.unmakeMove(rootMoves[j]);
+					if (stopped()) return;
+					result.offer(rootMoves[j], val);
+				}
+				if (finished.incrementAndGet() == count){
+					iterationDone = true;
+				}
+			}
+
+			//Lazy SMP: nothing left to take, so search the root moves a depth deeper to fill the transposition table for the threads still searching.
+			helping = true;
+			for (int i = id; !iterationDone && !searchAborted; i++){
+				int move = rootMoves[i % count];
+				board.makeMove(move);
+				searchRootMove(true, -INFINITE, INFINITE, depth + 1);
+				board.unmakeMove(move);
+			}
+			helping = false;
+		}
+
+		/**
+		 * Searches the position after a root move, the principal variation search way: the first move gets the whole window,
+		 * and the others a null window first.
+		 * @param first true for the first root move
+		 * @param alpha best score of the root so far
+		 * @param beta upper bound of the root window
+		 * @param depth depth to search to
+		 * @return score of the root move, for the player at the root
+		 */
+		private int searchRootMove(boolean first, int alpha, int beta, int depth){
+			if (first){
+				return -negamax(board, -beta, -alpha, depth, 1);
+			}
+			int val = -negamax(board, -alpha - 1, -alpha, depth, 1);
+			if (val > alpha && val < beta){
+				val = -negamax(board, -beta, -alpha, depth, 1);
+			}
+			return val;
+		}
+
+		/**
+		 * Negamax alpha-beta search with principal variation search, for every phase of the game. Scores are always for the side to move, so one method searches for both players:
+		 * the score of a move is minus the score the opponent gets after it. The first move is searched with the whole window, and the rest with a null window
+		 * (alpha, alpha + 1) that only proves they are no better, which is cheap. A move that turns out to be better is searched again with the whole window.
+		 * A move is a whole turn: a placement or movement, and the piece it takes if it forms a mill.
+		 * @param gamestate Theoretical gamestate to score and get next states of
+		 * @param alpha Score the side to move is already sure of
+		 * @param beta Score the opponent is already sure of, the side to move can't get more
+		 * @param depth Depth left to search to
+		 * @param ply Distance from the root, used to pick this node's slots in the move stack
+		 * @return score for the side to move, between alpha and beta
+		 */
+		private int negamax(GameBoard gamestate, int alpha, int beta, int depth, int ply){
+			Team mover = (gamestate.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? gamestate.getTeam1() : gamestate.getTeam2();
+			Team other = (gamestate.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? gamestate.getTeam2() : gamestate.getTeam1();
+			if (mover.getNumPieces() + mover.getPiecesRemainingToPlace() < 3) return -WIN_SCORE;
+			else if (other.getNumPieces() + other.getPiecesRemainingToPlace() < 3) return WIN_SCORE;
+			boolean placing = gamestate.isPlacementPhase();
+			if (tablebase != null && !placing){
+				int value = tablebase.probe(gamestate);
+				if (value != Tablebase.NOT_FOUND) return Tablebase.score(value);
+			}
+			if (ply >= MAX_PLY) return evaluate(gamestate, mover, other, placing);
+			if (depth <= 0) return quiesce(gamestate, mover, other, alpha, beta, ply, true);
+			if (outOfTime()) return 0;
+			long key = gamestate.getZobristKey();
+			long entry = transpositionTable.probe(key);
+			if (TranspositionTable.isUsable(entry, depth, alpha, beta)) return TranspositionTable.scoreOf(entry);
+			int alphaOrig = alpha, betaOrig = beta;
+
+			int start = ply * GameBoard.MAX_MOVES;
+			int end = gamestate.generateTurns(moveStack, start);
+			if (end == start) return -WIN_SCORE; //can't move, so this side has lost
+			orderMoves(gamestate, start, end, entry, ply);
+			int val, bestMove = Move.NONE;
+			for (int i = start; i < end; i++){
+				int move = moveStack[i];
+				gamestate.makeMove(move);
+				if (i == start){
+					val = -negamax(gamestate, -beta, -alpha, depth-1, ply+1);
+				} else {
+					val = -negamax(gamestate, -alpha-1, -alpha, depth-1, ply+1);
+					if (val > alpha && val < beta){
+						val = -negamax(gamestate, -beta, -alpha, depth-1, ply+1);
+					}
+				}
+				gamestate.unmakeMove(move);
+				if (stopped()) return 0;
+				if (val > alpha) {
+					alpha = val;
+					bestMove = move;
+				}
+				if (alpha >= beta) {
+					rememberCutoff(gamestate, move, depth, ply);
+					break;
+				}
+			}
+			transpositionTable.store(key, depth, TranspositionTable.boundType(alpha, alphaOrig, betaOrig), alpha, bestMove);
+			return alpha;
+		}
+
+		/**
+		 * Quiescence search, run where negamax() runs out of depth, so the position is not scored in the middle of a fight for a mill.
+		 * The side to move can stand pat, taking the evaluation of the position as it is, or close a mill and capture, and the search goes on until nobody can close a mill.
+		 * If the opponent has a mill it could close next turn, standing pat would ignore it, so at the first ply of the quiescence search the side to move has to
+		 * block it or capture instead. If it can do neither, every move is searched, and the opponent's capture is found a ply later.
+		 * @param gamestate board to search
+		 * @param mover team whose turn it is
+		 * @param other the other team
+		 * @param alpha Score the side to move is already sure of
+		 * @param beta Score the opponent is already sure of
+		 * @param ply Distance from the root, used to pick this node's slots in the move stack
+		 * @param evade true to search every move if the opponent threatens a mill, instead of standing pat
+		 * @return score for the side to move
+		 */
+		private int quiesce(GameBoard gamestate, Team mover, Team other, int alpha, int beta, int ply, boolean evade){
+			if (mover.getNumPieces() + mover.getPiecesRemainingToPlace() < 3) return -WIN_SCORE;
+			boolean placing = gamestate.isPlacementPhase();
+			if (ply >= MAX_PLY) return evaluate(gamestate, mover, other, placing);
+			if (outOfTime()) return 0;
+
+			int start = ply * GameBoard.MAX_MOVES;
+			int end = gamestate.generateTurns(moveStack, start);
+			if (end == start) return -WIN_SCORE; //can't move, so this side has lost
+			long state = gamestate.toBitBoard();
+			int threats = evade ? BitBoard.millThreats(state, BitBoard.sideToMove(state) ^ 1, gamestate.allowFlying()) : 0;
+			if (threats == 0){
+				int standPat = evaluate(gamestate, mover, other, placing);
+				if (standPat >= beta) return standPat;
+				alpha = Math.max(alpha, standPat);
+			}
+			//search the captures, and the moves that block the opponent's mills if it has any
+			int searched = start;
+			for (int i = start; i < end; i++){
+				int move = moveStack[i];
+				if (Move.capture(move) != Move.NO_POINT || (threats & (1 << Move.to(move))) != 0){
+					moveStack[searched++] = move;
+				}
+			}
+			if (searched > start || threats == 0){
+				end = searched;
+			} //else nothing blocks or captures, so every move is searched to see what the threat costs
+			for (int i = start; i < end; i++){
+				int move = moveStack[i];
+				gamestate.makeMove(move);
+				int val = -quiesce(gamestate, other, mover, -beta, -alpha, ply+1, false);
+				gamestate.unmakeMove(move);
+				if (stopped()) return 0;
+				if (val > alpha) alpha = val;
+				if (alpha >= beta) break;
+			}
+			return alpha;
+		}
+
+		/**
+		 * Resets the killer moves, and halves the history scores so the last search still counts but newer cutoffs count more.
+		 */
+		void newSearch(){
+			for (int[] plyKillers : killers){
+				Arrays.fill(plyKillers, Move.NONE);
+			}
+			for (int[][] side : history){
+				for (int[] from : side){
+					halve(from);
+				}
+			}
+			for (int[] side : captureHistory){
+				halve(side);
+			}
+		}
+
+		/**
+		 * Sorts this ply's moves so the ones most likely to cause a cutoff are searched first. That is the move the transposition table has for this position,
+		 * then moves that capture, by the history score of the piece they take, then the killer moves of this ply, then the other moves by their history score.
+		 * @param gamestate board the moves are for, with their side to move
+		 * @param start index of this ply's first move in the move stack
+		 * @param end index after this ply's last move
+		 * @param entry transposition table entry of the position
+		 * @param ply distance from the root
+		 */
+		private void orderMoves(GameBoard gamestate, int start, int end, long entry, int ply){
+			int hashMove = TranspositionTable.moveOf(entry);
+			int side = gamestate.CURRENT_TURN - GameBoard.PLAYER1_TURN;
+			int[] plyKillers = killers[ply];
+			for (int i = start; i < end; i++){
+				int move = moveStack[i];
+				int score;
+				if (move == hashMove){
+					score = HASH_MOVE_SCORE;
+				} else if (Move.capture(move) != Move.NO_POINT){
+					score = MILL_SCORE + captureHistory[side][Move.capture(move)];
+				} else if (move == plyKillers[0]){
+					score = KILLER_SCORE;
+				} else if (move == plyKillers[1]){
+					score = KILLER_SCORE - 1;
+				} else {
+					score = history[side][Move.from(move)][Move.to(move)];
+				}
+				//insertion sort, best first. There are rarely more than a few dozen moves.
+				int j = i;
+				while (j > start && scoreStack[j - 1] < score){
+					moveStack[j] = moveStack[j - 1];
+					scoreStack[j] = scoreStack[j - 1];
+					j--;
+				}
+				moveStack[j] = move;
+				scoreStack[j] = score;
+			}
+		}
+
+		/**
+		 * Remembers a move that caused a beta cutoff, so it is tried earlier in other positions: as a killer move of its ply, and in the history scores.
+		 * Captures are already searched early, so for them only the piece taken is remembered, to pick between the captures.
+		 * @param gamestate board the move was made on, with the move taken back
+		 * @param move the move
+		 * @param depth depth left at the node of the cutoff. Deeper cutoffs saved more work and count more.
+		 * @param ply distance from the root
+		 */
+		private void rememberCutoff(GameBoard gamestate, int move, int depth, int ply){
+			int side = gamestate.CURRENT_TURN - GameBoard.PLAYER1_TURN;
+			if (Move.capture(move) != Move.NO_POINT){
+				int[] scores = captureHistory[side];
+				scores[Move.capture(move)] += depth * depth;
+				if (scores[Move.capture(move)] >= HISTORY_LIMIT){
+					halve(scores);
+				}
+				return;
+			}
+			int[] plyKillers = killers[ply];
+			if (plyKillers[0] != move){
+				plyKillers[1] = plyKillers[0];
+				plyKillers[0] = move;
+			}
+			int[] scores = history[side][Move.from(move)];
+			scores[Move.to(move)] += depth * depth;
+			if (scores[Move.to(move)] >= HISTORY_LIMIT){
+				//keep history below the killer scores, halving everything keeps the moves in the same order
+				for (int[] from : history[side]){
+					halve(from);
+				}
+			}
+		}
+
+		/**
+		 * Halves every score in a row of history scores.
+		 * @param scores history scores
+		 */
+		private void halve(int[] scores){
+			for (int i = 0; i < scores.length; i++){
+				scores[i] >>= 1;
+			}
+		}
+
+		/**
+		 * Checks if the time budget has run out or the search was stopped or cancelled, and if so, aborts the search. This is only checked every TIME_CHECK_NODES nodes,
+		 * which is also when the first thread sends progress reports. Any depth can be aborted, even the first, so a search ends at most TIME_CHECK_NODES nodes after its deadline.
+		 * @return true if this thread should stop searching
+		 */
+		private boolean outOfTime(){
+			if (++nodes % TIME_CHECK_NODES == 0 && !searchAborted){
+				long now = System.currentTimeMillis();
+				Thread caller = searchingThread;
+				if ((caller != null && caller.isInterrupted()) || stopRequested || now >= deadline){
+					searchAborted = true;
+				} else if (id == 0 && now >= nextReport){
+					nextReport = now + PROGRESS_INTERVAL;
+					report(currentDepth);
+				}
+			}
+			return stopped();
+		}
+
+		/**
+		 * Checks if this thread should stop, because the search was aborted or because it is a helper and the depth it was helping with is finished.
+		 * Scores found after this returns true are meaningless and must not be stored.
+		 * @return true if this thread should stop searching
+		 */
+		private boolean stopped(){
+			return searchAborted || (helping && iterationDone);
+		}
+	}
+
+	/**
+	 * Scores a position with the evaluation of the phase it is in.
+	 * @param board board to get a score for
+	 * @param t1 team whose turn it is
+	 * @param t2 the other team
+	 * @param placing true if pieces are still being placed
+	 * @return score for t1
+	 */
+	int evaluate(GameBoard board, Team t1, Team t2, boolean placing){
+		return placing ? evalBoardPlace(board, t1, t2) : evalBoardMove(board, t1, t2);
+	}
+
+	/**
+	 * Rates the board during placement. Returns a score.
+	 * This heuristic values the first team's mills, while subtracting value for each mill the opponent has. Pieces in mills, pieces on corners and on the middle of a side,
+	 * and open two in a rows are worth what the evaluation weights say. The board keeps these counts up to date, so this doesn't look at the pieces.
+	 * @param board Board to evaluate
+	 * @param t1 Team 1 (not necessarily player 1)
+	 * @param t2 Team 2 (not necessarily player 2)
+	 * @return val The value that the heuristic determines this board should be scored as.
+	 */
+	int evalBoardPlace(GameBoard board, Team t1, Team t2){
+		//favor making a mill
+		int val = term(EvalWeights.PLACE_MILL_PIECE, board.countMillPieces(t1)) - term(EvalWeights.PLACE_ENEMY_MILL_PIECE, board.countMillPieces(t2));
+		int own = board.getOccupancy(t1), enemy = board.getOccupancy(t2);
+		val += term(EvalWeights.PLACE_CORNER, Integer.bitCount(own & ~BitBoard.MIDSECTION_MASK)) + term(EvalWeights.PLACE_MIDSECTION, Integer.bitCount(own & BitBoard.MIDSECTION_MASK));
+		val -= term(EvalWeights.PLACE_CORNER, Integer.bitCount(enemy & ~BitBoard.MIDSECTION_MASK)) + term(EvalWeights.PLACE_MIDSECTION, Integer.bitCount(enemy & BitBoard.MIDSECTION_MASK));
+		val += term(EvalWeights.PLACE_OPEN_TWO, board.countOpenTwos(t1)) - term(EvalWeights.PLACE_OPEN_TWO, board.countOpenTwos(t2));
+		return val;
+	}
+
+	/**
+	 * Board eval for making moves. If the first team cannot move, -1000000 points, as it has lost. The rest of the score comes from the evaluation weights:
+	 * a bonus if the other team cannot move, and the difference in pieces, mobility (on hard and extreme), pieces in mills and open two in a rows.
+	 * The move counts are kept up to date by the board, so this doesn't generate any moves.
+	 * @param board board to get a score for.
+	 * @param t1 Current team we are getting points for
+	 * @param t2 Team we are attempting to suppress
+	 * @return Score of this board
+	 */
+	int evalBoardMove(GameBoard board, Team t1, Team t2){
+		int val = 0;
+		int t1Moves = board.countMovement(t1);
+		int t2Moves = board.countMovement(t2);
+		if(t1Moves<=0){
+			val -= 1000000;
+		}
+		else if(t2Moves<=0){
+			val += term(EvalWeights.MOVE_BLOCKED, 1);
+		}
+
+		//favor cramping the player if it's harder so it can't do as much as it wants
+		if (difficulty >= AIPlayer.AI_HARD){
+			val += term(EvalWeights.MOVE_MOBILITY, t1Moves);
+			val -= term(EvalWeights.MOVE_MOBILITY, t2Moves);
+		}
+
+		val += term(EvalWeights.MOVE_PIECE, t1.getNumPieces());
+		val -= term(EvalWeights.MOVE_PIECE, t2.getNumPieces());
+		val += term(EvalWeights.MOVE_MILL_PIECE, board.countMillPieces(t1)) - term(EvalWeights.MOVE_MILL_PIECE, board.countMillPieces(t2));
+		val += term(EvalWeights.MOVE_OPEN_TWO, board.countOpenTwos(t1)) - term(EvalWeights.MOVE_OPEN_TWO, board.countOpenTwos(t2));
+		return val;
+	}
+
+	/**
+	 * Gets what some number of one thing the evaluation counts is worth.
+	 * @param weight which weight, like EvalWeights.PLACE_MILL_PIECE
+	 * @param count how many there are
+	 * @return weight times count, rounded toward zero
+	 */
+	private int term(int weight, int count){
+		return (int) (weights.get(weight) * count);
+	}
+
+	/**
+	 * Listens to how a search is going, for showing it while the AI thinks.
+	 */
+	public interface ProgressListener {
+		/**
+		 * Called when a depth finishes and every so often while one is being searched, from a searching thread.
+		 * @param progress where the search is
+		 */
+		void searchProgress(SearchProgress progress);
+	}
+}
@@ -0,0 +1,416 @@
+package com.cs471.ninemanmill;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many games at once in one JVM, with no UI, for things like a puzzle service or tuning. Each game is a Session, whose players are humans (their moves come in through play())
+ * or AI levels. A session has no thread of its own: between turns it is only its board, so thousands of games waiting on humans cost little memory.
+ * When it is an AI's turn, the session's next turn is queued on a fixed pool of search threads, one per processor by default, and the searches wait their turn in that queue.
+ * Each search thread keeps one AIPlayer for every player and level it has searched for, shared by all the sessions it runs, so the transposition tables don't grow with the number of games.
+ * getActiveSessions(), getQueuedSearches() and getRunningSearches() tell how busy the host is.
+ *
+ * Usage: java com.cs471.ninemanmill.SessionHost [options]
+ * Runs a load test: idle human games next to AI games, printing the host's counts and the memory used every second.
+ * Options:
+ *  -idle N      games waiting on a human (default 1000)
+ *  -ai N        AI against AI games, replaced by a new one when they finish (default 8)
+ *  -level N     AI level of the AI games, from 1 (random) to 4 (extreme) (default 3)
+ *  -time N      time budget of every AI move in ms (default 100)
+ *  -threads N   search threads (default one per processor)
+ *  -seconds N   how long to run (default 10)
+ * @author Michael Perez
+ *
+ */
+public class SessionHost {
+	public final static int HUMAN = 0; //player level of a human, whose moves come from play()
+	private final static int DEFAULT_MAX_PLIES = 300; //plies before a game is called a draw
+	private final static int TT_SIZE_BITS = 18; //transposition tables of the search threads' AIPlayers hold 2^18 positions (4MB)
+
+	private final ThreadPoolExecutor searchPool; //runs the AI turns, the queue holds at most one turn per session
+	private final long timeBudget; //time (in ms) every AI move may take
+	private final int maxPlies;
+	private final Map<Integer, Session> sessions = new ConcurrentHashMap<Integer, Session>(); //sessions that are still being played
+	private final AtomicInteger nextId = new AtomicInteger(1);
+	private final AtomicInteger finishedGames = new AtomicInteger(); //sessions that ended with a result or a draw
+	private volatile Listener listener; //told about every turn and every game that ends, null for nobody
+	private volatile boolean logging; //true if the AIPlayers print their log, off as the log of many games at once can't be followed
+	private final ThreadLocal<Map<Integer, AIPlayer>> players = new ThreadLocal<Map<Integer, AIPlayer>>(){
+		@Override
+		protected Map<Integer, AIPlayer> initialValue(){
+			return new HashMap<Integer, AIPlayer>();
+		}
+	}; //AIPlayers of each search thread, by player and level
+
+	/**
+	 * Makes a new host with one search thread per processor.
+	 * @param timeBudget time (in ms) every AI move may take
+	 */
+	public SessionHost(long timeBudget){
+		this(Runtime.getRuntime().availableProcessors(), timeBudget, DEFAULT_MAX_PLIES);
+	}
+
+	/**
+	 * Makes a new host.
+	 * @param threads search threads, the most AI moves that are searched at the same time
+	 * @param timeBudget time (in ms) every AI move may take
+	 * @param maxPlies plies before a game is called a draw
+	 */
+	public SessionHost(int threads, long timeBudget, int maxPlies){
+		this.timeBudget = timeBudget;
+		this.maxPlies = maxPlies;
+		searchPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+	}
+
+	/**
+	 * Sets the listener that is told about the turns played and the games that end. It is called from the search threads and from the threads that call play().
+	 * @param listener listener to tell, or null for none
+	 */
+	public void setListener(Listener listener){
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts a new game. If player 1 is an AI, its first turn is queued right away.
+	 * @param player1 HUMAN, or the AIPlayer level of player 1
+	 * @param player2 HUMAN, or the AIPlayer level of player 2
+	 * @param allowFlyMode if players with three pieces may fly
+	 * @return the new session
+	 */
+	public Session createSession(int player1, int player2, boolean allowFlyMode){
+		Session session = new Session(nextId.getAndIncrement(), player1, player2, allowFlyMode);
+		sessions.put(session.id, session);
+		synchronized (session){
+			session.nextTurn();
+		}
+		return session;
+	}
+
+	/**
+	 * Gets a session that is still being played.
+	 * @param id session id
+	 * @return the session, or null if there is none with that id or it has ended
+	 */
+	public Session getSession(int id){
+		return sessions.get(id);
+	}
+
+	/**
+	 * Plays a human's turn.
+	 * @param session session to play in
+	 * @param move encoded move, including its capture if it forms a mill
+	 * @throws PiecePlacementException if it is not a human's turn in this session, or the move is not legal
+	 */
+	public void play(Session session, int move) throws PiecePlacementException {
+		synchronized (session){
+			if (session.isOver() || session.levels[session.board.getTurn() - 1] != HUMAN){
+				throw new PiecePlacementException("It is not a human's turn in session "+session.id);
+			}
+			session.board.playMove(move);
+			session.turnPlayed(move);
+		}
+	}
+
+	/**
+	 * Ends a session before its game is over. A search running for it is cancelled.
+	 * @param session session to end
+	 */
+	public void close(Session session){
+		synchronized (session){
+			session.closed = true;
+			if (session.search != null){
+				session.search.cancel(true);
+			}
+		}
+		sessions.remove(session.id);
+	}
+
+	/**
+	 * Gets the number of sessions that are still being played.
+	 * @return active sessions
+	 */
+	public int getActiveSessions(){
+		return sessions.size();
+	}
+
+	/**
+	 * Gets the number of AI turns waiting for a search thread.
+	 * @return length of the search queue
+	 */
+	public int getQueuedSearches(){
+		return searchPool.getQueue().size();
+	}
+
+	/**
+	 * Gets the number of AI turns being searched right now.
+	 * @return busy search threads
+	 */
+	public int getRunningSearches(){
+		return searchPool.getActiveCount();
+	}
+
+	/**
+	 * Gets the number of sessions whose game ended with a win or a draw, not counting the ones that were closed.
+	 * @return finished games
+	 */
+	public int getFinishedGames(){
+		return finishedGames.get();
+	}
+
+	/**
+	 * Stops the host: the searches that are running are cancelled, and no more turns are played.
+	 */
+	public void shutdown(){
+		searchPool.shutdownNow();
+	}
+
+	/**
+	 * Sets whether the AIPlayers print their log. It is off at first. It is taken up by each AIPlayer at its next turn.
+	 * @param logging true to print the AI log
+	 */
+	public void setLogging(boolean logging){
+		this.logging = logging;
+	}
+
+	/**
+	 * Gets the AIPlayer the current search thread uses for a player and level, making it the first time.
+	 * @param playerID GameBoard.PLAYER1 or GameBoard.PLAYER2
+	 * @param level AIPlayer level
+	 * @return the search thread's AIPlayer
+	 */
+	private AIPlayer playerFor(char playerID, int level){
+		Map<Integer, AIPlayer> threadPlayers = players.get();
+		Integer key = level * 2 + ((playerID == GameBoard.PLAYER1) ? 0 : 1);
+		AIPlayer player = threadPlayers.get(key);
+		if (player == null){
+			player = new AIPlayer(playerID, level, 1, TT_SIZE_BITS); //the pool already searches many games at once, so each search gets one thread
+			threadPlayers.put(key, player);
+		}
+		player.setLogging(logging);
+		return player;
+	}
+
+	/**
+	 * One game on the host: its board and who plays each side. All changes to it are made while holding its lock.
+	 */
+	public class Session {
+		private final int id;
+		private final int[] levels; //HUMAN or the AI level of each player
+		private final GameBoard board;
+		private int plies; //turns played
+		private int result = GameState.RESULT_NONE; //result once the game is over
+		private boolean draw; //true if the game was called a draw by the ply limit
+		private boolean closed; //true once close() was called
+		private Future<?> search; //AI turn that is queued or running, null if there is none
+
+		Session(int id, int player1, int player2, boolean allowFlyMode){
+			this.id = id;
+			levels = new int[] {player1, player2};
+			board = new GameBoard(allowFlyMode);
+		}
+
+		/**
+		 * Records a turn that was played on the board, and starts the next one.
+		 * @param move encoded move that was played
+		 */
+		private void turnPlayed(int move){
+			plies++;
+			result = board.getResult();
+			draw = result == GameState.RESULT_NONE && plies >= maxPlies;
+			Listener listener = SessionHost.this.listener;
+			if (listener != null){
+				listener.turnPlayed(this, move);
+			}
+			if (isOver()){
+				sessions.remove(id);
+				finishedGames.incrementAndGet();
+				if (listener != null){
+					listener.gameOver(this, result);
+				}
+			} else {
+				nextTurn();
+			}
+		}
+
+		/**
+		 * Queues the next turn on the search threads if it is an AI's. A human's turn needs nothing until play() is called.
+		 */
+		private void nextTurn(){
+			search = null;
+			if (levels[board.getTurn() - 1] == HUMAN){
+				return;
+			}
+			search = searchPool.submit(new Runnable(){
+				@Override
+				public void run(){
+					playAITurn();
+				}
+			});
+		}
+
+		/**
+		 * Runs on a search thread: searches the AI's turn on a copy of the board, so getBoard() can be called during the search, and plays it.
+		 */
+		private void playAITurn(){
+			GameBoard position;
+			synchronized (this){
+				if (closed){
+					return;
+				}
+				position = new GameBoard(board);
+			}
+			char playerID = (position.getTurn() == GameBoard.PLAYER1_TURN) ? GameBoard.PLAYER1 : GameBoard.PLAYER2;
+			int move = playerFor(playerID, levels[position.getTurn() - 1]).getNextTurn(position, System.currentTimeMillis() + timeBudget);
+			synchronized (this){
+				if (closed || Thread.currentThread().isInterrupted()){
+					return;
+				}
+				try {
+					board.playMove(move);
+				} catch (PiecePlacementException e) {
+					//the AI has no legal move, which getResult() already calls a loss, so this is a bug
+					System.err.println("Session "+id+": "+e.getMessage());
+					closed = true;
+					sessions.remove(id);
+					return;
+				}
+				turnPlayed(move);
+			}
+		}
+
+		/**
+		 * Gets the session id, which getSession() finds it by.
+		 * @return id
+		 */
+		public int getId(){
+			return id;
+		}
+
+		/**
+		 * Gets a copy of the board as it is now.
+		 * @return copy of the board
+		 */
+		public synchronized GameBoard getBoard(){
+			return new GameBoard(board);
+		}
+
+		/**
+		 * Checks if the game has ended, with a result, a draw or by being closed.
+		 * @return true if no more turns will be played
+		 */
+		public synchronized boolean isOver(){
+			return closed || draw || result != GameState.RESULT_NONE;
+		}
+
+		/**
+		 * Gets the result of the game.
+		 * @return RESULT_NONE while it is being played or if it was a draw, otherwise RESULT_PLAYER1_WINS or RESULT_PLAYER2_WINS
+		 */
+		public synchronized int getResult(){
+			return result;
+		}
+
+		/**
+		 * Gets the number of turns played.
+		 * @return plies
+		 */
+		public synchronized int getPlies(){
+			return plies;
+		}
+	}
+
+	/**
+	 * Told about what happens in the host's sessions.
+	 */
+	public interface Listener {
+		/**
+		 * Called after a turn was played, while holding the session's lock.
+		 * @param session session the turn was played in
+		 * @param move encoded move that was played
+		 */
+		void turnPlayed(Session session, int move);
+
+		/**
+		 * Called when a session's game ends with a result or a draw.
+		 * @param session session that ended
+		 * @param result RESULT_PLAYER1_WINS, RESULT_PLAYER2_WINS, or RESULT_NONE for a draw
+		 */
+		void gameOver(Session session, int result);
+	}
+
+	/**
+	 * Runs a load test from the command line.
+	 * @param args options, see the class description
+	 */
+	public static void main(String[] args){
+		int idle = 1000, aiGames = 8, level = AIPlayer.AI_HARD, seconds = 10;
+		long time = 100;
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			for (int i = 0; i < args.length; i++){
+				if (args[i].equals("-idle")){
+					idle = CommandLine.intValue(args, ++i);
+				} else if (args[i].equals("-ai")){
+					aiGames = CommandLine.intValue(args, ++i);
+				} else if (args[i].equals("-level")){
+					level = CommandLine.intValue(args, ++i);
+				} else if (args[i].equals("-time")){
+					time = CommandLine.longValue(args, ++i);
+				} else if (args[i].equals("-threads")){
+					threads = CommandLine.intValue(args, ++i);
+				} else if (args[i].equals("-seconds")){
+					seconds = CommandLine.intValue(args, ++i);
+				} else {
+					throw new IllegalArgumentException("Unknown option "+args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java com.cs471.ninemanmill.SessionHost [-idle N] [-ai N] [-level N] [-time ms] [-threads N] [-seconds N]");
+			System.exit(1);
+		}
+
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long baseMemory = runtime.totalMemory() - runtime.freeMemory();
+		final SessionHost host = new SessionHost(threads, time, DEFAULT_MAX_PLIES);
+		for (int i = 0; i < idle; i++){
+			host.createSession(HUMAN, AIPlayer.AI_HARD, true);
+		}
+		System.gc();
+		long idleMemory = runtime.totalMemory() - runtime.freeMemory() - baseMemory;
+		System.out.println(idle+" idle games use "+idleMemory / 1024+"KB, "+(idle > 0 ? idleMemory / idle : 0)+" bytes each");
+
+		final int aiLevel = level;
+		host.setListener(new Listener(){
+			@Override
+			public void turnPlayed(Session session, int move){
+			}
+
+			@Override
+			public void gameOver(Session session, int result){
+				host.createSession(aiLevel, aiLevel, true); //keep the same number of AI games going
+			}
+		});
+		for (int i = 0; i < aiGames; i++){
+			host.createSession(level, level, true);
+		}
+		for (int s = 1; s <= seconds; s++){
+			try {
+				Thread.sleep(1000);
+			} catch (InterruptedException e) {
+				break;
+			}
+			long used = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+			System.out.println(s+"s: "+host.getActiveSessions()+" active sessions, "+host.getRunningSearches()+" searching, "+host.getQueuedSearches()+" queued, "
+					+host.getFinishedGames()+" games finished, "+used+"MB used");
+		}
+		host.shutdown();
+	}
+}
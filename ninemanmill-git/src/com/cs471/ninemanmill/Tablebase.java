@@ -0,0 +1,390 @@
+package com.cs471.ninemanmill;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Endgame tablebase for the flying phase: the exact result of every position where all pieces are placed, flying is allowed, and one side is down to three pieces.
+ * The tables are made offline by TablebaseGenerator, and with them the AI plays these endgames perfectly without searching.
+ *
+ * There is one table for each material, given as the pieces of the side to move and the pieces of the other side, like 3v3, 3v4 and 4v3.
+ * Colors don't matter once every piece is placed, so a table is stored from the point of view of the side to move and holds one byte per position:
+ * 0 if the position is a draw, otherwise the number of plies (half moves) until the game ends, plus one. With perfect play a won game always ends
+ * after an odd number of plies and a lost game after an even number, so the same byte gives both win/loss and the distance.
+ * A win is the fastest one possible and a loss is the slowest one possible.
+ *
+ * Positions are numbered by the combination of points the side to move is on, then the combination of the other side's pieces on the points that are left
+ * (see index()), so every table is exactly as big as the number of positions of its material, and a position's value is the byte at its index.
+ * Table files are memory mapped with DatabaseFile rather than read in, so loading is instant however big the tables are, and only the parts of them a game reaches are paged in.
+ * @author Michael Perez
+ *
+ */
+public class Tablebase {
+	public final static String DEFAULT_DIRECTORY = "tablebases"; //directory the game loads tables from, next to nmm_settings.ini
+	public final static int MIN_PIECES = 3; //a side with fewer pieces has lost
+	public final static int MAX_PIECES = 9;
+	public final static int NOT_FOUND = -1; //probe result for positions no loaded table covers
+	public final static int DRAW = 0;
+	public final static int MAX_PLIES = 254; //longest distance a byte can hold
+	public final static int WIN_SCORE = 50000; //score of a win in zero plies, see score()
+	public final static int NO_SCORE = Integer.MIN_VALUE; //scoreAfterTurn() result for positions no loaded table covers
+	private final static int MAGIC = 0x4E4D5442; //"NMTB", first bytes of every table file
+	private final static String EXTENSION = ".nmtb";
+	/** BINOMIAL[n][k] is n choose k, for the points of the board and the pieces of a side */
+	final static int[][] BINOMIAL = new int[BitBoard.POINTS + 1][MAX_PIECES + 1];
+	private static Tablebase defaultTablebase; //loaded the first time getDefault() is called
+
+	private final ByteBuffer[][] tables = new ByteBuffer[MAX_PIECES + 1][MAX_PIECES + 1]; //tables[pieces to move][other pieces], null if not loaded
+
+	static {
+		for (int n = 0; n <= BitBoard.POINTS; n++){
+			BINOMIAL[n][0] = 1;
+			for (int k = 1; k <= MAX_PIECES; k++){
+				BINOMIAL[n][k] = (n == 0) ? 0 : BINOMIAL[n-1][k-1] + BINOMIAL[n-1][k];
+			}
+		}
+	}
+
+	/**
+	 * Makes an empty tablebase, which doesn't know any position until tables are added to it.
+	 */
+	public Tablebase(){
+	}
+
+	/**
+	 * Gets the tablebase the game uses, loading it from DEFAULT_DIRECTORY the first time. If the directory doesn't exist, or a table in it can't be read,
+	 * the tablebase has fewer (or no) tables, and the AI searches those endgames like any other position.
+	 * @return the shared tablebase
+	 */
+	public static synchronized Tablebase getDefault(){
+		if (defaultTablebase == null){
+			try {
+				defaultTablebase = load(new File(DEFAULT_DIRECTORY));
+			} catch (IOException e) {
+				System.err.println("Could not load the endgame tablebase: "+e.getMessage());
+				defaultTablebase = new Tablebase();
+			}
+		}
+		return defaultTablebase;
+	}
+
+	/**
+	 * Loads the tables in a directory. They are loaded in order (3v3, then 3v4 and 4v3, and so on), and loading stops at the first material that is missing,
+	 * as every table needs the smaller ones to have been right. The files are mapped, not read.
+	 * @param directory directory with the table files
+	 * @return tablebase with every table found
+	 * @throws IOException if a table file can't be read or is not a table of the material its name says
+	 */
+	public static Tablebase load(File directory) throws IOException {
+		Tablebase tablebase = new Tablebase();
+		for (int pieces = MIN_PIECES; pieces <= MAX_PIECES; pieces++){
+			File small = new File(directory, fileName(MIN_PIECES, pieces));
+			File big = new File(directory, fileName(pieces, MIN_PIECES));
+			if (!small.isFile() || !big.isFile()){
+				break;
+			}
+			tablebase.setTable(MIN_PIECES, pieces, map(small, MIN_PIECES, pieces));
+			tablebase.setTable(pieces, MIN_PIECES, map(big, pieces, MIN_PIECES));
+		}
+		return tablebase;
+	}
+
+	/**
+	 * Checks if this tablebase has no tables.
+	 * @return true if every probe will return NOT_FOUND
+	 */
+	public boolean isEmpty(){
+		return tables[MIN_PIECES][MIN_PIECES] == null;
+	}
+
+	/**
+	 * Gets the most pieces the bigger side can have in a position this tablebase knows.
+	 * @return N of the largest 3vN table loaded, or 0 if there are none
+	 */
+	public int getMaxPieces(){
+		int max = 0;
+		for (int pieces = MIN_PIECES; pieces <= MAX_PIECES; pieces++){
+			if (tables[MIN_PIECES][pieces] != null && tables[pieces][MIN_PIECES] != null){
+				max = pieces;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Looks up a position on a board. Only positions with every piece placed, flying allowed, and a side down to three pieces can be found.
+	 * @param board board to look up, with the side to move being the side whose turn it is
+	 * @return value of the position for the side to move (see isWin(), isLoss() and pliesToEnd()), or NOT_FOUND
+	 */
+	public int probe(GameBoard board){
+		Team team1 = board.getTeam1(), team2 = board.getTeam2();
+		if (!board.allowFlying() || isEmpty() || (team1.getNumPieces() != MIN_PIECES && team2.getNumPieces() != MIN_PIECES)
+				|| team1.getPiecesRemainingToPlace() != 0 || team2.getPiecesRemainingToPlace() != 0){
+			return NOT_FOUND; //checked before packing the board, as the search probes every node
+		}
+		long state = board.toBitBoard();
+		int side = BitBoard.sideToMove(state);
+		return probe(BitBoard.occupancy(state, side), BitBoard.occupancy(state, side ^ 1));
+	}
+
+	/**
+	 * Looks up a movement phase position given by the points of each side.
+	 * @param toMove occupancy mask of the side to move
+	 * @param other occupancy mask of the other side
+	 * @return value of the position for the side to move, or NOT_FOUND
+	 */
+	public int probe(int toMove, int other){
+		int a = Integer.bitCount(toMove), b = Integer.bitCount(other);
+		if (a > MAX_PIECES || b > MAX_PIECES){
+			return NOT_FOUND;
+		}
+		ByteBuffer table = tables[a][b];
+		if (table == null){
+			return NOT_FOUND;
+		}
+		return table.get(index(toMove, other)) & 0xFF; //absolute get, so threads can share the buffer
+	}
+
+	/**
+	 * Picks the best whole turn in a position: the fastest win, a draw if it can't win, or the slowest loss.
+	 * @param board board to move on. It is not changed.
+	 * @return encoded move with its capture, or Move.NONE if the position isn't in the tablebase or has no moves
+	 */
+	public int bestMove(GameBoard board){
+		if (probe(board) == NOT_FOUND){
+			return Move.NONE;
+		}
+		long state = board.toBitBoard();
+		int side = BitBoard.sideToMove(state);
+		int own = BitBoard.occupancy(state, side), other = BitBoard.occupancy(state, side ^ 1);
+		int[] moves = new int[GameBoard.MAX_MOVES];
+		int count = board.generateLegalMoves(moves, 0);
+		int best = Move.NONE, bestScore = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++){
+			int move = moves[i];
+			int ownAfter = own & ~(1 << Move.from(move)) | (1 << Move.to(move));
+			int otherAfter = (Move.capture(move) == Move.NO_POINT) ? other : other & ~(1 << Move.capture(move));
+			int score = scoreAfterTurn(ownAfter, otherAfter);
+			if (score == NO_SCORE){
+				return Move.NONE; //a smaller table is missing, let the search decide
+			}
+			if (score > bestScore){
+				best = move;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Scores the position after a turn for the side that just played it, like score() does for the side to move.
+	 * @param ownAfter occupancy mask of the side that played, after the turn
+	 * @param otherAfter occupancy mask of the other side, now to move, after the turn's capture
+	 * @return score for the side that played, or NO_SCORE if the position isn't in the tablebase
+	 */
+	public int scoreAfterTurn(int ownAfter, int otherAfter){
+		if (Integer.bitCount(otherAfter) < MIN_PIECES){
+			return WIN_SCORE; //the capture won the game
+		}
+		int value = probe(otherAfter, ownAfter);
+		return (value == NOT_FOUND) ? NO_SCORE : -score(value);
+	}
+
+	/**
+	 * Checks if a probed value is a win for the side to move.
+	 * @param value value from probe()
+	 * @return true for a win
+	 */
+	public static boolean isWin(int value){
+		return value > 0 && value % 2 == 0;
+	}
+
+	/**
+	 * Checks if a probed value is a loss for the side to move.
+	 * @param value value from probe()
+	 * @return true for a loss
+	 */
+	public static boolean isLoss(int value){
+		return value % 2 == 1;
+	}
+
+	/**
+	 * Gets the number of plies until the game ends with perfect play.
+	 * @param value value from probe(), not DRAW or NOT_FOUND
+	 * @return plies until one side wins
+	 */
+	public static int pliesToEnd(int value){
+		return value - 1;
+	}
+
+	/**
+	 * Turns a probed value into a search score for the side to move: WIN_SCORE less the plies to the win, minus that for a loss, and 0 for a draw.
+	 * Faster wins and slower losses score better, and every tablebase result is better or worse than anything the evaluation gives.
+	 * @param value value from probe(), not NOT_FOUND
+	 * @return score from the point of view of the side to move
+	 */
+	public static int score(int value){
+		if (value == DRAW){
+			return 0;
+		}
+		return isWin(value) ? WIN_SCORE - pliesToEnd(value) : -WIN_SCORE + pliesToEnd(value);
+	}
+
+	/**
+	 * Gets the number of positions of a material.
+	 * @param toMove pieces of the side to move
+	 * @param other pieces of the other side
+	 * @return size of the table
+	 */
+	static int size(int toMove, int other){
+		return BINOMIAL[BitBoard.POINTS][toMove] * BINOMIAL[BitBoard.POINTS - toMove][other];
+	}
+
+	/**
+	 * Numbers a position within the table of its material. The side to move's points are ranked among all combinations of that many points,
+	 * and the other side's points are ranked among the combinations of the points the side to move isn't on.
+	 * @param toMove occupancy mask of the side to move
+	 * @param other occupancy mask of the other side
+	 * @return index from 0 to size() - 1
+	 */
+	static int index(int toMove, int other){
+		int free = BitBoard.POINTS - Integer.bitCount(toMove);
+		return rank(toMove) * BINOMIAL[free][Integer.bitCount(other)] + rank(compress(other, toMove));
+	}
+
+	/**
+	 * Ranks a combination of points. Combinations with the same number of points are ranked in the order of their masks, from 0.
+	 * @param mask points of the combination
+	 * @return rank of the combination
+	 */
+	static int rank(int mask){
+		int rank = 0;
+		for (int k = 1; mask != 0; mask &= mask - 1, k++){
+			rank += BINOMIAL[Integer.numberOfTrailingZeros(mask)][k];
+		}
+		return rank;
+	}
+
+	/**
+	 * Gets the combination of a rank. The opposite of rank().
+	 * @param rank rank of the combination
+	 * @param count number of points in the combination
+	 * @return mask of the combination
+	 */
+	static int unrank(int rank, int count){
+		int mask = 0;
+		int point = BitBoard.POINTS - 1;
+		for (int k = count; k > 0; k--){
+			while (BINOMIAL[point][k] > rank){
+				point--;
+			}
+			mask |= 1 << point;
+			rank -= BINOMIAL[point][k];
+			point--;
+		}
+		return mask;
+	}
+
+	/**
+	 * Renumbers the points of a mask to leave out the points taken by another mask, so the first point not in taken becomes 0, the next 1, and so on.
+	 * @param mask points to renumber, none of them in taken
+	 * @param taken points to leave out
+	 * @return renumbered mask
+	 */
+	static int compress(int mask, int taken){
+		int compressed = 0;
+		for (; mask != 0; mask &= mask - 1){
+			int point = Integer.numberOfTrailingZeros(mask);
+			compressed |= 1 << (point - Integer.bitCount(taken & ((1 << point) - 1)));
+		}
+		return compressed;
+	}
+
+	/**
+	 * Puts back the point numbers of a mask made by compress().
+	 * @param compressed renumbered mask
+	 * @param taken points that were left out
+	 * @return mask with the real point numbers
+	 */
+	static int expand(int compressed, int taken){
+		int mask = 0;
+		for (int free = BitBoard.FULL_MASK & ~taken; compressed != 0; free &= free - 1, compressed >>>= 1){
+			if ((compressed & 1) != 0){
+				mask |= Integer.lowestOneBit(free);
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Adds a table to this tablebase, replacing the one of that material if there was one.
+	 * @param toMove pieces of the side to move
+	 * @param other pieces of the other side
+	 * @param table one value per position, size(toMove, other) long
+	 */
+	void setTable(int toMove, int other, byte[] table){
+		setTable(toMove, other, ByteBuffer.wrap(table));
+	}
+
+	/**
+	 * Adds a table held in a buffer, like a mapped file, to this tablebase.
+	 * @param toMove pieces of the side to move
+	 * @param other pieces of the other side
+	 * @param table one value per position from index 0, size(toMove, other) long
+	 */
+	void setTable(int toMove, int other, ByteBuffer table){
+		if (table.capacity() != size(toMove, other)){
+			throw new IllegalArgumentException("A "+toMove+"v"+other+" table has "+size(toMove, other)+" positions, not "+table.capacity());
+		}
+		tables[toMove][other] = table;
+	}
+
+	/**
+	 * Gets the file name of the table of a material.
+	 * @param toMove pieces of the side to move
+	 * @param other pieces of the other side
+	 * @return file name, like "3v4.nmtb"
+	 */
+	static String fileName(int toMove, int other){
+		return toMove+"v"+other+EXTENSION;
+	}
+
+	/**
+	 * Writes a table to a file in a directory, named by fileName().
+	 * @param directory directory to write to. It is made if it doesn't exist.
+	 * @param toMove pieces of the side to move
+	 * @param other pieces of the other side
+	 * @param table values to write
+	 * @throws IOException if the file can't be written
+	 */
+	static void write(File directory, int toMove, int other, byte[] table) throws IOException {
+		DatabaseFile.write(new File(directory, fileName(toMove, other)), MAGIC, material(toMove, other), table);
+	}
+
+	/**
+	 * Maps a table file, checking it holds the material it should.
+	 * @param file file to map
+	 * @param toMove pieces of the side to move the table should have
+	 * @param other pieces of the other side the table should have
+	 * @return values of the table
+	 * @throws IOException if the file can't be mapped or is not the right table
+	 */
+	private static ByteBuffer map(File file, int toMove, int other) throws IOException {
+		ByteBuffer table = DatabaseFile.map(file, MAGIC, material(toMove, other));
+		if (table.capacity() != size(toMove, other)){
+			throw new IOException(file+" has "+table.capacity()+" positions, not "+size(toMove, other));
+		}
+		return table;
+	}
+
+	/**
+	 * Gets the number a table file's header stores its material as.
+	 * @param toMove pieces of the side to move
+	 * @param other pieces of the other side
+	 * @return header number of the material
+	 */
+	private static int material(int toMove, int other){
+		return (toMove << 8) | other;
+	}
+}
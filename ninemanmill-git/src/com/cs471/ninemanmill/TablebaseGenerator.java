@@ -0,0 +1,324 @@
+package com.cs471.ninemanmill;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Makes the endgame tablebase by retrograde analysis: starting from the positions that are over, it works backwards to find every position that can be forced to a win,
+ * and how fast. Positions that are never found are draws.
+ *
+ * Materials are solved in pairs, 3vN together with Nv3, since a move without a capture goes from one to the other. A capture by the three piece side goes to (N-1)v3,
+ * which was solved with the pair before, and any other capture leaves a side with two pieces, which is a win. So 3v3 is solved first, then 3v4 and 4v3, and so on.
+ *
+ * Within a pair the positions are solved one distance at a time. A position is won in d plies if a move leads to a position lost in d - 1, and lost in d plies once every move leads to
+ * a position that is won, the slowest of them in d - 1. To find them without looking at every position again for every distance, each position keeps a count of its moves that don't lose yet.
+ * When a position is found to be won, the positions that can move into it (found by playing moves backwards) count down by one, and the ones that reach zero are lost.
+ *
+ * Usage: java com.cs471.ninemanmill.TablebaseGenerator [-dir directory] maxPieces
+ *  -dir  directory to write the tables to, Tablebase.DEFAULT_DIRECTORY if not given
+ *  maxPieces  the largest 3vN endgame to solve. Each pair needs three bytes per position of memory while it is being solved: about 30MB for 3v3, 150MB for 3v4 and 500MB for 3v5.
+ * @author Michael Perez
+ *
+ */
+public class TablebaseGenerator {
+	private final Tablebase tablebase; //solved tables, the smaller materials are looked up in it
+	private final Material[] pair; //the materials being solved, one of them for 3v3
+	private int horizon; //longest distance known so far that the solving loop has to reach
+
+	/**
+	 * The arrays of one material while it is being solved.
+	 */
+	private static class Material {
+		final int toMove; //pieces of the side to move
+		final int other; //pieces of the other side
+		final int otherCombinations; //number of ways to place the other side's pieces once the side to move is placed
+		final byte[] values; //values as they are stored in the tablebase, 0 until a position is solved
+		final byte[] counts; //moves of each unsolved position that don't lead to a known win for the opponent
+		final byte[] pending; //odd: plies of a win by capturing into a smaller table. Even: fewest plies a loss can take, because of captures into a smaller table.
+		Material partner; //material the side to move's moves without a capture go to
+
+		Material(int toMove, int other){
+			this.toMove = toMove;
+			this.other = other;
+			otherCombinations = Tablebase.BINOMIAL[BitBoard.POINTS - toMove][other];
+			int size = Tablebase.size(toMove, other);
+			values = new byte[size];
+			counts = new byte[size];
+			pending = new byte[size];
+		}
+	}
+
+	/**
+	 * Makes a generator that adds the tables it solves to a tablebase.
+	 * @param tablebase tablebase to add to. It must already have every table smaller than the first one solved.
+	 * @param pieces pieces of the bigger side of the pair to solve
+	 */
+	private TablebaseGenerator(Tablebase tablebase, int pieces){
+		this.tablebase = tablebase;
+		Material small = new Material(Tablebase.MIN_PIECES, pieces);
+		if (pieces == Tablebase.MIN_PIECES){
+			small.partner = small;
+			pair = new Material[] {small};
+		} else {
+			Material big = new Material(pieces, Tablebase.MIN_PIECES);
+			small.partner = big;
+			big.partner = small;
+			pair = new Material[] {small, big};
+		}
+	}
+
+	/**
+	 * Runs the generator from the command line.
+	 * @param args options, see the class description
+	 */
+	public static void main(String[] args){
+		File directory = new File(Tablebase.DEFAULT_DIRECTORY);
+		int maxPieces = -1;
+		try {
+			for (int i = 0; i < args.length; i++){
+				if (args[i].equals("-dir")){
+					directory = new File(CommandLine.value(args, ++i));
+				} else if (args[i].startsWith("-")){
+					throw new IllegalArgumentException("Unknown option "+args[i]);
+				} else {
+					maxPieces = CommandLine.intArgument(args[i], "maxPieces");
+				}
+			}
+			if (maxPieces < Tablebase.MIN_PIECES || maxPieces > Tablebase.MAX_PIECES){
+				throw new IllegalArgumentException("maxPieces must be from "+Tablebase.MIN_PIECES+" to "+Tablebase.MAX_PIECES);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java com.cs471.ninemanmill.TablebaseGenerator [-dir directory] maxPieces");
+			System.exit(1);
+		}
+
+		try {
+			generate(maxPieces, directory);
+		} catch (IOException e) {
+			System.err.println("Could not write the tables: "+e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Solves every endgame from 3v3 up to 3vN and Nv3.
+	 * @param maxPieces N, the pieces of the bigger side of the largest endgame
+	 * @param directory directory to write each table to once it is solved, or null to only keep them in memory
+	 * @return tablebase with every table solved
+	 * @throws IOException if a table can't be written
+	 */
+	public static Tablebase generate(int maxPieces, File directory) throws IOException {
+		Tablebase tablebase = new Tablebase();
+		for (int pieces = Tablebase.MIN_PIECES; pieces <= maxPieces; pieces++){
+			long start = System.currentTimeMillis();
+			TablebaseGenerator generator = new TablebaseGenerator(tablebase, pieces);
+			generator.solve();
+			for (Material material : generator.pair){
+				tablebase.setTable(material.toMove, material.other, material.values);
+				if (directory != null){
+					Tablebase.write(directory, material.toMove, material.other, material.values);
+				}
+				System.out.println(summary(material));
+			}
+			System.out.println("Solved 3v"+pieces+" in "+(System.currentTimeMillis() - start)+"ms");
+		}
+		return tablebase;
+	}
+
+	/**
+	 * Solves the pair of materials: first every position's moves are counted, then the wins and losses are found one distance at a time.
+	 */
+	private void solve(){
+		horizon = 0;
+		for (Material material : pair){
+			countMoves(material);
+		}
+		for (int plies = 1; ; plies += 2){
+			boolean found = false;
+			//wins in plies: by capturing into a smaller table, or by moving into a loss in plies - 1
+			for (Material material : pair){
+				found |= pendingWins(material, plies);
+			}
+			for (Material material : pair){
+				found |= markPredecessors(material, plies - 1);
+			}
+			//losses in plies + 1: positions whose last move that didn't lose has just turned out to lose in plies
+			for (Material material : pair){
+				found |= markPredecessors(material, plies);
+			}
+			if (!found && plies >= horizon){
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Counts the moves of every position of a material, and solves what can be solved from the moves alone: positions with no moves are lost,
+	 * and captures that leave two pieces or go into a smaller table are looked up.
+	 * @param material material to count
+	 */
+	private void countMoves(Material material){
+		boolean flying = (material.toMove == Tablebase.MIN_PIECES);
+		int base = 0;
+		for (int own = (1 << material.toMove) - 1; own <= BitBoard.FULL_MASK; own = nextCombination(own), base += material.otherCombinations){
+			int compressed = (1 << material.other) - 1;
+			for (int i = 0; i < material.otherCombinations; i++, compressed = nextCombination(compressed)){
+				int index = base + i;
+				int other = Tablebase.expand(compressed, own);
+				int empty = BitBoard.FULL_MASK & ~own & ~other;
+				int count = 0, winPlies = Integer.MAX_VALUE, lossPlies = 0;
+				boolean hasMoves = false;
+				for (int pieces = own; pieces != 0; pieces &= pieces - 1){
+					int from = Integer.numberOfTrailingZeros(pieces);
+					for (int targets = flying ? empty : BitBoard.adjacent(from) & empty; targets != 0; targets &= targets - 1){
+						int to = Integer.numberOfTrailingZeros(targets);
+						int ownAfter = own & ~(1 << from) | (1 << to);
+						hasMoves = true;
+						if (!BitBoard.isMill(ownAfter, to)){
+							count++; //goes to the partner material, which is unknown until it is solved
+							continue;
+						}
+						int free = other & ~BitBoard.millPieces(other);
+						for (int removable = (free != 0) ? free : other; removable != 0; removable &= removable - 1){
+							int otherAfter = other & ~Integer.lowestOneBit(removable);
+							if (material.other == Tablebase.MIN_PIECES){
+								winPlies = 1; //down to two pieces
+								continue;
+							}
+							int value = tablebase.probe(otherAfter, ownAfter);
+							if (value == Tablebase.DRAW){
+								count++; //a draw is never counted down, so this position can't be lost
+							} else if (Tablebase.isLoss(value)){
+								winPlies = Math.min(winPlies, Tablebase.pliesToEnd(value) + 1);
+							} else {
+								lossPlies = Math.max(lossPlies, Tablebase.pliesToEnd(value) + 1);
+							}
+						}
+					}
+				}
+				if (count > 255){
+					throw new IllegalStateException("A position has more moves than its count can hold");
+				}
+				material.counts[index] = (byte) count;
+				if (winPlies != Integer.MAX_VALUE){
+					material.pending[index] = (byte) winPlies;
+					horizon = Math.max(horizon, winPlies);
+				} else {
+					material.pending[index] = (byte) lossPlies;
+					if (count == 0){
+						//no moves at all, or only captures that lose
+						setValue(material, index, hasMoves ? lossPlies : 0);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the wins by capture into a smaller table that take a number of plies, if the position wasn't won faster.
+	 * @param material material to mark in
+	 * @param plies plies of the wins to mark
+	 * @return true if any position was solved
+	 */
+	private boolean pendingWins(Material material, int plies){
+		boolean found = false;
+		for (int i = 0; i < material.values.length; i++){
+			if (material.values[i] == 0 && (material.pending[i] & 0xFF) == plies){
+				material.values[i] = (byte) (plies + 1);
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds every position of a material solved with a distance, and plays the opponent's last move backwards to get to the partner material positions that could move into it.
+	 * If the positions found are losses, those partner positions are won in one ply more. If they are wins, the partner positions count down one move,
+	 * and are lost once they have no moves left that don't lose.
+	 * @param material material to look for solved positions in
+	 * @param plies distance of the solved positions to look for
+	 * @return true if any position of the partner material was solved
+	 */
+	private boolean markPredecessors(Material material, int plies){
+		Material partner = material.partner;
+		boolean loss = (plies % 2 == 0);
+		byte target = (byte) (plies + 1);
+		boolean flying = (material.other == Tablebase.MIN_PIECES); //the opponent, who moved last
+		boolean found = false;
+		int base = 0;
+		for (int own = (1 << material.toMove) - 1; own <= BitBoard.FULL_MASK; own = nextCombination(own), base += material.otherCombinations){
+			for (int i = 0; i < material.otherCombinations; i++){
+				if (material.values[base + i] != target) continue;
+				int other = Tablebase.expand(Tablebase.unrank(i, material.other), own);
+				int empty = BitBoard.FULL_MASK & ~own & ~other;
+				for (int pieces = other; pieces != 0; pieces &= pieces - 1){
+					int to = Integer.numberOfTrailingZeros(pieces);
+					if (BitBoard.isMill(other, to)) continue; //moving here would have formed a mill and captured
+					for (int sources = flying ? empty : BitBoard.adjacent(to) & empty; sources != 0; sources &= sources - 1){
+						int previous = Tablebase.index(other & ~(1 << to) | Integer.lowestOneBit(sources), own);
+						if (partner.values[previous] != 0) continue;
+						if (loss){
+							setValue(partner, previous, plies + 1);
+							found = true;
+						} else if (--partner.counts[previous] == 0){
+							int pending = partner.pending[previous] & 0xFF; //even here, as a pending win would already be solved
+							setValue(partner, previous, Math.max(plies + 1, pending));
+							found = true;
+						}
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Stores the distance of a solved position.
+	 * @param material material of the position
+	 * @param index index of the position
+	 * @param plies plies until the game ends
+	 */
+	private void setValue(Material material, int index, int plies){
+		if (plies > Tablebase.MAX_PLIES){
+			throw new IllegalStateException("A position takes more than "+Tablebase.MAX_PLIES+" plies to finish");
+		}
+		material.values[index] = (byte) (plies + 1);
+		horizon = Math.max(horizon, plies);
+	}
+
+	/**
+	 * Gets the next combination with the same number of points, in the order rank() numbers them.
+	 * @param mask combination
+	 * @return next larger mask with the same number of bits
+	 */
+	private static int nextCombination(int mask){
+		int lowest = mask & -mask;
+		int ripple = mask + lowest;
+		return (((ripple ^ mask) >>> 2) / lowest) | ripple;
+	}
+
+	/**
+	 * Describes how many positions of a material are won, lost and drawn.
+	 * @param material solved material
+	 * @return one line summary
+	 */
+	private static String summary(Material material){
+		long wins = 0, losses = 0, draws = 0;
+		int longest = 0;
+		for (byte b : material.values){
+			int value = b & 0xFF;
+			if (value == Tablebase.DRAW){
+				draws++;
+				continue;
+			}
+			if (Tablebase.isWin(value)){
+				wins++;
+			} else {
+				losses++;
+			}
+			longest = Math.max(longest, Tablebase.pliesToEnd(value));
+		}
+		return material.toMove+"v"+material.other+": "+material.values.length+" positions, "+wins+" won, "+losses+" lost, "+draws+" drawn, longest "+longest+" plies";
+	}
+}
@@ -19,6 +19,7 @@ public class Team {
 	}
 
 	private int piecesRemainingToPlace;
+	private ArrayList<GamePiece> sparePieces = new ArrayList<GamePiece>(); //pieces taken off the board by make/unmake, reused instead of making new ones
 	
 	/**
 	 * Constructs a new team that can play on the board. By default, Nine Man Mill gives each team 9 pieces to play with.
@@ -113,7 +114,60 @@ public class Team {
 	public void usePiece(int r, int p) {
 		//System.out.println("Used piece of team "+getSymbol()+", remaining: "+piecesRemainingToPlace);
 		piecesRemainingToPlace--;
-		teamPieces.add(new GamePiece(r,p));
+		teamPieces.add(newPiece(r,p));
+	}
+	
+	/**
+	 * Undoes usePiece(). The piece at r,p is taken off the team and goes back to the pieces left to place.
+	 * @param r ring of the piece
+	 * @param p position on the ring of the piece
+	 */
+	public void unusePiece(int r, int p) {
+		discardPiece(r,p);
+		piecesRemainingToPlace++;
+	}
+	
+	/**
+	 * Removes the gamepiece at r,p like removePiece(), but keeps the object to be reused by a later usePiece() or restorePiece().
+	 * Only use this when nothing else holds on to the piece, like on a board the AI is searching on.
+	 * @param r Ring
+	 * @param p Position on ring
+	 */
+	public void discardPiece(int r, int p) {
+		for (int i = 0; i < teamPieces.size(); i++){
+			GamePiece piece = teamPieces.get(i);
+			if (piece.getR() == r && piece.getP() == p){
+				teamPieces.remove(i);
+				sparePieces.add(piece);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Puts a piece that was removed back on the team at r,p. It does not count as placing a piece.
+	 * @param r Ring
+	 * @param p Position on ring
+	 */
+	public void restorePiece(int r, int p) {
+		teamPieces.add(newPiece(r,p));
+	}
+	
+	/**
+	 * Gets a gamepiece at r,p, reusing a spare one if there is any.
+	 * @param r Ring
+	 * @param p Position on ring
+	 * @return piece at r,p
+	 */
+	private GamePiece newPiece(int r, int p) {
+		if (sparePieces.isEmpty()){
+			return new GamePiece(r,p);
+		}
+		GamePiece piece = sparePieces.remove(sparePieces.size() - 1);
+		piece.setRing(r);
+		piece.setPos(p);
+		piece.setInMill(false);
+		return piece;
 	}
 
 	/**
@@ -155,6 +209,26 @@ public class Team {
 		return teamPieces.size();
 	}
 	
+	/**
+	 * Moves one of this team's pieces to a new position, updating the piece in place.
+	 * @param r Ring the piece is on
+	 * @param p Position on the ring the piece is on
+	 * @param newR Ring the piece is moving to
+	 * @param newP Position on the ring the piece is moving to
+	 * @return true if the piece was found and moved, false if this team has no piece at r,p
+	 */
+	public boolean movePiece(int r, int p, int newR, int newP){
+		for (int i = 0; i < teamPieces.size(); i++){
+			GamePiece piece = teamPieces.get(i);
+			if (piece.getR() == r && piece.getP() == p){
+				piece.setRing(newR);
+				piece.setPos(newP);
+				return true;
+			}
+		}
+		return false; //was not in the list
+	}
+	
 	/**
 	 * Updates a piece to a new position
 	 * @param old the old position of the piece
@@ -0,0 +1,309 @@
+package com.cs471.ninemanmill;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Command line tournament between AI engines, with no UI and no delays between moves.
+ * Every engine plays every other engine a number of games, half of them as player 1. Games are played in parallel on a thread pool, and each one uses its own board and AIPlayers.
+ * When all games are done, it prints the wins, draws and losses of every pairing with an Elo estimate, and how long each engine took per move.
+ * This is meant for checking that a change to the engine made it stronger (or at least not weaker) and how it changed its speed.
+ *
+ * Usage: java com.cs471.ninemanmill.Tournament [options] engine engine [engine...]
+ * An engine is a difficulty (2 for moderate up to 4 for extreme, 1 is random), optionally followed by :ms for its time budget per move, like 4:250.
+ * Options:
+ *  -games N     games each pair of engines plays (default 10)
+ *  -threads N   games played at the same time (default one per processor)
+ *  -maxplies N  plies before a game is called a draw (default 300)
+ *  -nofly       play without flying
+ *  -verbose     keep the AI's log output
+ * @author Michael Perez
+ *
+ */
+public class Tournament {
+	private final static int DEFAULT_GAMES = 10;
+	private final static int DEFAULT_MAX_PLIES = 300;
+
+	private int gamesPerPairing = DEFAULT_GAMES;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int maxPlies = DEFAULT_MAX_PLIES;
+	private boolean allowFlyMode = true;
+	private boolean verbose = false;
+	private ArrayList<Engine> engines = new ArrayList<Engine>();
+	private ArrayList<Pairing> pairings = new ArrayList<Pairing>();
+
+	/**
+	 * Runs a tournament from the command line.
+	 * @param args options and engines, see the class description
+	 */
+	public static void main(String[] args){
+		Tournament tournament = new Tournament();
+		try {
+			tournament.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java com.cs471.ninemanmill.Tournament [-games N] [-threads N] [-maxplies N] [-nofly] [-verbose] engine engine [engine...]");
+			System.err.println("An engine is a difficulty from 1 (random) to 4 (extreme), optionally with a time budget in ms like 4:250");
+			System.exit(1);
+		}
+		tournament.run();
+	}
+
+	/**
+	 * Reads the options and engines.
+	 * @param args command line arguments
+	 * @throws IllegalArgumentException if an argument can't be understood
+	 */
+	private void parseArguments(String[] args){
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("-games")){
+				gamesPerPairing = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-threads")){
+				threads = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-maxplies")){
+				maxPlies = CommandLine.intValue(args, ++i);
+			} else if (args[i].equals("-nofly")){
+				allowFlyMode = false;
+			} else if (args[i].equals("-verbose")){
+				verbose = true;
+			} else if (args[i].startsWith("-")){
+				throw new IllegalArgumentException("Unknown option "+args[i]);
+			} else {
+				engines.add(new Engine(args[i], engines.size() + 1));
+			}
+		}
+		if (engines.size() < 2){
+			throw new IllegalArgumentException("At least two engines are needed");
+		}
+		if (gamesPerPairing < 1 || threads < 1 || maxPlies < 1){
+			throw new IllegalArgumentException("-games, -threads and -maxplies must be at least 1");
+		}
+	}
+
+	/**
+	 * Plays every game and prints the results.
+	 */
+	private void run(){
+		for (int i = 0; i < engines.size(); i++){
+			for (int j = i + 1; j < engines.size(); j++){
+				pairings.add(new Pairing(engines.get(i), engines.get(j)));
+			}
+		}
+		int totalGames = pairings.size() * gamesPerPairing;
+		System.out.println("Playing "+totalGames+" games on "+threads+" threads, "+(allowFlyMode ? "with" : "without")+" flying, draw after "+maxPlies+" plies");
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Game> games = new ArrayList<Game>(totalGames);
+		for (Pairing pairing : pairings){
+			for (int g = 0; g < gamesPerPairing; g++){
+				games.add(new Game(pairing, g % 2 == 0)); //take turns being player 1
+			}
+		}
+		long start = System.currentTimeMillis();
+		HeadlessGame.playAll(pool, games);
+		pool.shutdownNow();
+		System.out.println("Finished in "+(System.currentTimeMillis() - start) / 1000.0+"s");
+		System.out.println();
+		printResults();
+	}
+
+	/**
+	 * Prints the results of every pairing, then the totals and move timing of every engine.
+	 */
+	private void printResults(){
+		System.out.println(String.format("%-36s %5s %5s %5s %7s %14s", "Pairing", "W", "D", "L", "Score", "Elo diff"));
+		for (Pairing pairing : pairings){
+			System.out.println(String.format("%-36s %5d %5d %5d %6.1f%% %14s", pairing.first+" vs "+pairing.second,
+					pairing.wins, pairing.draws, pairing.losses, 100 * pairing.score(), eloString(pairing.wins, pairing.draws, pairing.losses)));
+		}
+		System.out.println();
+		System.out.println(String.format("%-18s %5s %5s %5s %7s %14s %8s %10s %10s", "Engine", "W", "D", "L", "Score", "Elo vs field", "Moves", "Avg ms", "Max ms"));
+		for (Engine engine : engines){
+			int games = engine.wins + engine.draws + engine.losses;
+			System.out.println(String.format("%-18s %5d %5d %5d %6.1f%% %14s %8d %10.2f %10.2f", engine,
+					engine.wins, engine.draws, engine.losses, (games == 0) ? 0 : 100 * (engine.wins + 0.5 * engine.draws) / games,
+					eloString(engine.wins, engine.draws, engine.losses), engine.moves,
+					(engine.moves == 0) ? 0 : engine.moveNanos / 1e6 / engine.moves, engine.maxMoveNanos / 1e6));
+		}
+	}
+
+	/**
+	 * Estimates the Elo difference a score stands for.
+	 * @param score fraction of the points won, between 0 and 1 (exclusive)
+	 * @return Elo difference to the opponents
+	 */
+	public static double eloDifference(double score){
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * Formats the Elo difference of a record, with its 95% error margin.
+	 * @param wins games won
+	 * @param draws games drawn
+	 * @param losses games lost
+	 * @return the difference and margin, like "+35 +/- 60"
+	 */
+	private static String eloString(int wins, int draws, int losses){
+		int games = wins + draws + losses;
+		if (games == 0){
+			return "-";
+		}
+		double score = (wins + 0.5 * draws) / games;
+		if (wins == games || losses == games){
+			return (wins == games) ? "+inf" : "-inf";
+		}
+		//standard error of the score, from the spread of the game results
+		double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / games;
+		double error = 1.96 * Math.sqrt(variance / games);
+		double high = eloDifference(Math.min(score + error, 0.999));
+		double low = eloDifference(Math.max(score - error, 0.001));
+		return String.format("%+.0f +/- %.0f", eloDifference(score), (high - low) / 2);
+	}
+
+	/**
+	 * An engine in the tournament: an AI difficulty and the time it gets per move. It keeps its own totals.
+	 */
+	private static class Engine {
+		private int difficulty;
+		private long timeBudget;
+		private String name;
+		private int wins, draws, losses;
+		private int moves;
+		private long moveNanos, maxMoveNanos;
+
+		/**
+		 * Makes an engine from its command line description.
+		 * @param description difficulty, optionally followed by :ms for the time budget
+		 * @param number position on the command line, so the same engine can be entered twice and still be told apart
+		 */
+		Engine(String description, int number){
+			String[] parts = description.split(":");
+			try {
+				difficulty = Integer.parseInt(parts[0]);
+				timeBudget = (parts.length > 1) ? Long.parseLong(parts[1]) : NineManMill.AI_TIME_BUDGET;
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad engine "+description);
+			}
+			if (difficulty < AIPlayer.AI_RANDOM || difficulty > AIPlayer.AI_IMPOSSIBLE || timeBudget <= 0){
+				throw new IllegalArgumentException("Bad engine "+description);
+			}
+			name = "#"+number+" "+AIPlayer.getDifficultyString(difficulty)+"/"+timeBudget;
+		}
+
+		synchronized void addMove(long nanos){
+			moves++;
+			moveNanos += nanos;
+			maxMoveNanos = Math.max(maxMoveNanos, nanos);
+		}
+
+		synchronized void addResult(double score){
+			if (score == 1){
+				wins++;
+			} else if (score == 0){
+				losses++;
+			} else {
+				draws++;
+			}
+		}
+
+		@Override
+		public String toString(){
+			return name;
+		}
+	}
+
+	/**
+	 * Two engines that play each other, with the record of the first one.
+	 */
+	private static class Pairing {
+		private Engine first, second;
+		private int wins, draws, losses;
+
+		Pairing(Engine first, Engine second){
+			this.first = first;
+			this.second = second;
+		}
+
+		synchronized void addResult(double firstScore){
+			if (firstScore == 1){
+				wins++;
+			} else if (firstScore == 0){
+				losses++;
+			} else {
+				draws++;
+			}
+			first.addResult(firstScore);
+			second.addResult(1 - firstScore);
+		}
+
+		synchronized double score(){
+			int games = wins + draws + losses;
+			return (games == 0) ? 0 : (wins + 0.5 * draws) / games;
+		}
+	}
+
+	/**
+	 * One game between the two engines of a pairing, played on a pool thread.
+	 */
+	private class Game implements Callable<Game> {
+		private Pairing pairing;
+		private boolean firstIsPlayer1;
+		private HeadlessGame game;
+
+		Game(Pairing pairing, boolean firstIsPlayer1){
+			this.pairing = pairing;
+			this.firstIsPlayer1 = firstIsPlayer1;
+		}
+
+		/**
+		 * Plays the game to the end, or until it is a draw by the ply limit, and adds the result to the pairing.
+		 * @return this game
+		 */
+		@Override
+		public Game call(){
+			final Engine engine1 = firstIsPlayer1 ? pairing.first : pairing.second;
+			final Engine engine2 = firstIsPlayer1 ? pairing.second : pairing.first;
+			AIPlayer player1 = HeadlessGame.newPlayer(GameBoard.PLAYER1, engine1.difficulty);
+			AIPlayer player2 = HeadlessGame.newPlayer(GameBoard.PLAYER2, engine2.difficulty);
+			player1.setLogging(verbose);
+			player2.setLogging(verbose);
+			game = new HeadlessGame(player1, engine1.timeBudget, player2, engine2.timeBudget);
+			int result = game.play(new GameBoard(allowFlyMode), maxPlies, new HeadlessGame.PlyListener(){
+				@Override
+				public int turnPicked(GameBoard board, int ply, int move, long nanos){
+					((board.getTurn() == GameBoard.PLAYER1_TURN) ? engine1 : engine2).addMove(nanos);
+					return move;
+				}
+			});
+			double firstScore;
+			if (result == GameState.RESULT_NONE){
+				firstScore = 0.5;
+			} else {
+				firstScore = ((result == GameState.RESULT_PLAYER1_WINS) == firstIsPlayer1) ? 1 : 0;
+			}
+			pairing.addResult(firstScore);
+			return this;
+		}
+
+		@Override
+		public String toString(){
+			Engine engine1 = firstIsPlayer1 ? pairing.first : pairing.second;
+			Engine engine2 = firstIsPlayer1 ? pairing.second : pairing.first;
+			String score;
+			switch (game.getResult()){
+			case GameState.RESULT_PLAYER1_WINS:
+				score = "1-0";
+				break;
+			case GameState.RESULT_PLAYER2_WINS:
+				score = "0-1";
+				break;
+			default:
+				score = "1/2-1/2";
+			}
+			String error = game.getError();
+			return engine1+" vs "+engine2+": "+score+" in "+game.getPlies()+" plies"+((error != null) ? " ("+error+")" : "");
+		}
+	}
+}
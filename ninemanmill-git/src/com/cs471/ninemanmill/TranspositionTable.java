@@ -0,0 +1,177 @@
+package com.cs471.ninemanmill;
+
+/**
+ * A fixed size hash table of positions the AI has already searched, keyed by the position's Zobrist key.
+ * The same position is often reached through different move orders, so remembering its score (and what move was best there) saves re-searching it.
+ *
+ * Each entry stores the score, how deep the position was searched, whether the score is exact or only a bound (from an alpha-beta cutoff), and the best move found.
+ * When two positions land in the same slot, the one searched deeper is kept, unless the old entry is left over from an earlier search.
+ * Entries are packed into longs so the table is two flat arrays and probing it does not make any objects.
+ *
+ * The table is shared by all the threads of a search without any locking. Each slot stores the entry and the key XORed with the entry,
+ * so a slot that was read while another thread was halfway through writing it (or whose long was torn) does not match its key and is treated as a miss.
+ * @author Michael Perez
+ *
+ */
+public class TranspositionTable {
+	public final static int EXACT = 0; //score is the real score of the position
+	public final static int LOWER_BOUND = 1; //search failed high, the real score is at least this
+	public final static int UPPER_BOUND = 2; //search failed low, the real score is at most this
+	public final static long MISS = 0; //returned by probe() when the position is not in the table
+
+	private final static int DEPTH_SHIFT = 32;
+	private final static int BOUND_SHIFT = 40;
+	private final static int MOVE_SHIFT = 42;
+	private final static int AGE_SHIFT = 57;
+	private final static long VALID = 1L << 63; //set on every stored entry so an entry is never equal to MISS
+	private final static int NO_MOVE = 0x7FFF; //an encoded move is 15 bits, and this one can never be a real move
+
+	private final long[] keys; //key XOR entry of each slot
+	private final long[] entries;
+	private final int mask;
+	private int age;
+
+	/**
+	 * Makes a new, empty table.
+	 * @param sizeBits the table holds 2^sizeBits entries, each taking 16 bytes
+	 */
+	public TranspositionTable(int sizeBits){
+		keys = new long[1 << sizeBits];
+		entries = new long[1 << sizeBits];
+		mask = (1 << sizeBits) - 1;
+	}
+
+	/**
+	 * Marks the start of a new search. Entries from older searches are replaced before deeper entries from this one.
+	 */
+	public void newSearch(){
+		age = (age + 1) & 63;
+	}
+
+	/**
+	 * Looks a position up in the table.
+	 * @param key Zobrist key of the position
+	 * @return packed entry to read with the static getters, or MISS if the position is not in the table
+	 */
+	public long probe(long key){
+		int slot = (int) key & mask;
+		long entry = entries[slot];
+		return ((keys[slot] ^ entry) == key) ? entry : MISS;
+	}
+
+	/**
+	 * Stores the result of searching a position, unless its slot holds a deeper search of another position from this search.
+	 * @param key Zobrist key of the position
+	 * @param depth depth the position was searched to
+	 * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param score score of the position
+	 * @param move best move found (an encoded Move), or Move.NONE
+	 */
+	public void store(long key, int depth, int bound, int score, int move){
+		int slot = (int) key & mask;
+		long old = entries[slot];
+		boolean sameKey = (keys[slot] ^ old) == key;
+		if (old != MISS && !sameKey && ageOf(old) == age && depthOf(old) > depth){
+			return; //keep the deeper entry
+		}
+		if (move == Move.NONE && sameKey && old != MISS){
+			move = moveOf(old); //don't forget a known best move because this search didn't find one
+		}
+		long entry = VALID
+				| ((long) age << AGE_SHIFT)
+				| ((long) (move & NO_MOVE) << MOVE_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| ((long) Math.min(depth, 255) << DEPTH_SHIFT)
+				| (score & 0xFFFFFFFFL);
+		entries[slot] = entry;
+		keys[slot] = key ^ entry;
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	public void clear(){
+		for (int i = 0; i < entries.length; i++){
+			keys[i] = 0;
+			entries[i] = MISS;
+		}
+	}
+
+	/**
+	 * Gets the score of an entry.
+	 * @param entry entry returned by probe()
+	 * @return stored score
+	 */
+	public static int scoreOf(long entry){
+		return (int) entry;
+	}
+
+	/**
+	 * Gets the depth an entry was searched to.
+	 * @param entry entry returned by probe()
+	 * @return stored depth
+	 */
+	public static int depthOf(long entry){
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * Gets the bound type of an entry.
+	 * @param entry entry returned by probe()
+	 * @return EXACT, LOWER_BOUND or UPPER_BOUND
+	 */
+	public static int boundOf(long entry){
+		return (int) (entry >>> BOUND_SHIFT) & 3;
+	}
+
+	/**
+	 * Gets the best move of an entry.
+	 * @param entry entry returned by probe()
+	 * @return encoded move, or Move.NONE if no best move was stored
+	 */
+	public static int moveOf(long entry){
+		int move = (int) (entry >>> MOVE_SHIFT) & NO_MOVE;
+		return (move == NO_MOVE) ? Move.NONE : move;
+	}
+
+	/**
+	 * Checks if an entry's score can be used in place of searching, given the search window.
+	 * @param entry entry returned by probe()
+	 * @param depth depth the caller wants to search to
+	 * @param alpha lower end of the search window
+	 * @param beta upper end of the search window
+	 * @return true if the stored score is deep enough and exact, or a bound that falls outside the window
+	 */
+	public static boolean isUsable(long entry, int depth, int alpha, int beta){
+		if (entry == MISS || depthOf(entry) < depth){
+			return false;
+		}
+		switch (boundOf(entry)){
+		case EXACT:
+			return true;
+		case LOWER_BOUND:
+			return scoreOf(entry) >= beta;
+		case UPPER_BOUND:
+			return scoreOf(entry) <= alpha;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Works out the bound type of a fail-hard alpha-beta result.
+	 * @param score score the search returned
+	 * @param alpha alpha the search was started with
+	 * @param beta beta the search was started with
+	 * @return UPPER_BOUND if it failed low, LOWER_BOUND if it failed high, EXACT otherwise
+	 */
+	public static int boundType(int score, int alpha, int beta){
+		if (score <= alpha) return UPPER_BOUND;
+		if (score >= beta) return LOWER_BOUND;
+		return EXACT;
+	}
+
+	private static int ageOf(long entry){
+		return (int) (entry >>> AGE_SHIFT) & 63;
+	}
+}
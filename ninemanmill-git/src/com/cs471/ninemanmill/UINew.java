@@ -11,6 +11,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Random;
@@ -54,6 +56,7 @@ public class UINew extends JFrame implements ActionListener {
 	JMenuBar menuBar;
 	JPanel contentPanel;
 	JLabel directionsLabel;
+	private String directions; //directions without the AI's search progress
 	
 	public DrawPanel drawPanel;
 	private DrawPanel creditsPanel;
@@ -71,6 +74,12 @@ public class UINew extends JFrame implements ActionListener {
 		setLocationRelativeTo(null); //center the window
 		setTitle("Nine Men's Morris");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				stopAI(); //don't leave a search running while the window closes
+			}
+		});
 		coordinates = new BoardUI(); //get a list of coordinates of where to draw all pieces. This is a large piece of math, so this is in a separate class.
 		setupMenu(); //Setup the menu bar.
 		loadSounds(); //Load sounds into memory
@@ -194,6 +203,7 @@ public class UINew extends JFrame implements ActionListener {
 			//user clicked X, ignore new game request
 			return;
 		}
+		stopAI(); //the AIs of the old game must not keep searching, or play into the new one
 		if(player1 > 0){
 			p1ai = new AI(GameBoard.PLAYER1, player1, this);
 		} else {
@@ -218,7 +228,7 @@ public class UINew extends JFrame implements ActionListener {
 		
 		
 		//Make a new gamestate, clear the old one
-		gamestate = new GameBoard(this,ngb.getFlyMode());
+		gamestate = new GameBoard(ngb.getFlyMode());
 	
 		//Draw circles to look like pieces. These pieces however will do nothing, as this is the title screen.
 		pieces = new GamePieceButton[3][8];
@@ -242,11 +252,14 @@ public class UINew extends JFrame implements ActionListener {
 		}
 		if (p1ai == null) {
 			setDirections("Player 1's turn to place a piece");
+			if (p2ai != null) {
+				p2ai.ponder(gamestate); //think about the reply while the human places
+			}
 		} else {
 			setDirections("AI Player 1 is choosing where to place a piece...");
 			p1ai.performTurn(gamestate); //player 1's ai will now perform the first turn
 		}
-		gamestate.playBackgroundMusic();
+		playBackgroundMusic();
 		drawPanel.repaint();
 	}
 
@@ -255,7 +268,31 @@ public class UINew extends JFrame implements ActionListener {
 	 * @param directions Text to set.
 	 */
 	protected void setDirections(String directions) {
+		this.directions = directions;
 		directionsLabel.setText(directions);
+		directionsLabel.setToolTipText(null);
+	}
+	
+	/**
+	 * Shows how the AI's search is going after the directions, with the whole report in the tooltip.
+	 * @param progress latest progress of the search
+	 */
+	protected void showAIProgress(SearchProgress progress) {
+		String best = (progress.getBestMove() == Move.NONE) ? "" : ", best "+Move.notation(progress.getBestMove());
+		directionsLabel.setText(directions+" (depth "+progress.getDepth()+best+")");
+		directionsLabel.setToolTipText(progress.toString());
+	}
+	
+	/**
+	 * Cancels the AI players and any search they are running. They do nothing more after this.
+	 */
+	protected void stopAI() {
+		if (p1ai != null) {
+			p1ai.cancel();
+		}
+		if (p2ai != null) {
+			p2ai.cancel();
+		}
 	}
 	
 	/**
@@ -267,7 +304,7 @@ public class UINew extends JFrame implements ActionListener {
 		JMenu actions = new JMenu("Actions");
 		JMenu debug = new JMenu("Debug");
 		JMenu help = new JMenu("Help");
-		JMenuItem newgame, preferences, exit;
+		JMenuItem newgame, moveNow, preferences, exit;
 		JMenuItem showWinnerDialog, printBoard, printModes, setNewDirections, debugRepaint, debugBreaking, randomlyFillBoard, printTeamPieces, garbageCollect, credits;
 
 
@@ -279,6 +316,19 @@ public class UINew extends JFrame implements ActionListener {
 				setupNewGame();
 			}
 		});
+		moveNow = new JMenuItem("Move now");
+		moveNow.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent actionEvent) {
+				//make the AI that is thinking play the best move it has found so far
+				if (p1ai != null) {
+					p1ai.moveNow();
+				}
+				if (p2ai != null) {
+					p2ai.moveNow();
+				}
+			}
+		});
 		preferences = new JMenuItem("Preferences");
 		preferences.addActionListener(new ActionListener() {
 			@Override
@@ -401,6 +451,7 @@ public class UINew extends JFrame implements ActionListener {
 		});
 		
 		actions.add(newgame);
+		actions.add(moveNow);
 		actions.add(preferences);
 		actions.addSeparator();
 		actions.add(exit);
@@ -455,14 +506,16 @@ public class UINew extends JFrame implements ActionListener {
 	 * @param text The direction given to user
 	 */
 	public void setDirectionsText(String text){
-		directionsLabel.setText(text);
+		setDirections(text);
 	}
 	
 	/**
 	 * Sets the current turn to the other side and repaints the screen if any changes occured.
 	 */
 	public void completeTurn(){
+		boolean wasSetupMode = gamestate.setupMode;
 		gamestate.completeTurn();
+		updatePieceModes(wasSetupMode);
 		
 		//check for game synchronization between struct and ui
 		if (checkBoardSynchronization(gamestate) == false){
@@ -500,7 +553,11 @@ public class UINew extends JFrame implements ActionListener {
 					return;
 				}
 				
-				//theres no ai performing on this turn
+				//theres no ai performing on this turn, so an AI opponent can think on the human's time
+				AI opponent = (gamestate.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? p2ai : p1ai;
+				if (opponent != null){
+					opponent.ponder(gamestate);
+				}
 				if (gamestate.setupMode){ 
 					setDirections("Player "+gamestate.CURRENT_TURN+"'s turn to place a piece"); //finish the turn, place a piece.
 				} else {
@@ -511,6 +568,90 @@ public class UINew extends JFrame implements ActionListener {
 		repaint(); //update graphics
 	}
 	
+	/**
+	 * Sets the piece buttons to the right modes for the turn that just started, now that the gameboard has switched turns.
+	 * When the game has just been finished, the pieces are frozen and the winner is shown.
+	 * @param wasSetupMode if the turn that ended was in setup mode
+	 */
+	private void updatePieceModes(boolean wasSetupMode){
+		boolean aiTurn = (gamestate.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? p1ai != null : p2ai != null;
+		if (wasSetupMode){
+			if (!gamestate.setupMode){
+				//setup is over, we should remove all non representing buttons, move them to hidden mode.
+				for (int r = 0; r<=2; r++){
+					//Clearing empty pieces on each ring.
+					for (GamePieceButton piece : pieces[r]){ //iterate on each ring
+						if (piece.representsPiece() == GameBoard.EMPTY){
+							piece.setMode(GamePieceButton.HIDDEN_MODE);
+						}
+					}
+				}
+				repaint(); //redraw the screen. this makes the pieces actually disappear
+			} else {
+				//still setup mode, pieces left to place. Set pieces to the correct modes based on what's playing on what team.
+				for (int r = 0; r<=2; r++){
+					for (GamePieceButton piece : pieces[r]){ //iterate on each ring
+						if (piece.representsPiece() == GameBoard.EMPTY){
+							//AI players place through the AI class, so turn off human interaction on their turn
+							piece.setMode(aiTurn ? GamePieceButton.AI_PLACE_MODE : GamePieceButton.PLACE_MODE);
+						} else {
+							//there's a piece here
+							piece.setMode(GamePieceButton.NORMAL_MODE); //set them to normal modes
+						}
+					}
+				}
+			}
+		}
+		if (gamestate.setupMode){
+			return;
+		}
+		
+		char turnSymbol = (gamestate.CURRENT_TURN == GameBoard.PLAYER1_TURN) ? GameBoard.PLAYER1 : GameBoard.PLAYER2;
+		for (int r = 0; r<=2; r++){
+			for (GamePieceButton piece : pieces[r]){ //iterate on each ring
+				if (piece.representsPiece() == GameBoard.EMPTY) continue; //don't do anything to pieces that are empty
+				if (!gamestate.gameFinished && !aiTurn && piece.representsPiece() == turnSymbol){
+					piece.setMode(GamePieceButton.SELECT_MODE); //this side can now select
+				} else {
+					piece.setMode(GamePieceButton.NORMAL_MODE); //this side can't select now
+				}
+			}
+		}
+		if (gamestate.gameFinished){
+			int winner = gamestate.getResult();
+			Team loser = (winner == GameState.RESULT_PLAYER1_WINS) ? gamestate.getTeam2() : gamestate.getTeam1();
+			setDirections("Player "+winner+" wins!");
+			new WinnerDialog(this, winner, "Player "+loser.getSymbol()+((loser.getNumPieces() + loser.getPiecesRemainingToPlace() < 3) ? " has less than three pieces remaining" : " has no moves left"));
+		}
+	}
+	
+	/**
+	 * Starts playing the background music. Checks if the music is already playing, and if it is,
+	   it ignores the play request.
+	 */
+	public void playBackgroundMusic(){
+		if (NineManMill.PLAY_MUSIC){
+			if (NineManMill.bgplayer!=null && NineManMill.bgplayer.isActive()){
+				return; //already playing
+			}
+			try {
+				NineManMill.bgplayer.playBGMusic();
+			} catch (Exception e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Stops the background music, if it is possible.
+	 */
+	protected void stopBackgroundMusic(){
+		if (NineManMill.bgplayer!=null){
+			NineManMill.bgplayer.stopMusic();
+		}
+	}
+	
 	/**
 	 * Updates the UI when a piece has been set to move. This clears the temporary holding cache for the first piece, and clears the highlighting on a piece, if any.
 	 * This also sets the origin spot to hidden piece
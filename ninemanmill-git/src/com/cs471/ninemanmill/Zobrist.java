@@ -0,0 +1,72 @@
+package com.cs471.ninemanmill;
+
+import java.util.Random;
+
+/**
+ * Zobrist hashing keys for board positions. A position's key is the XOR of a random number for every piece on the board,
+ * one for the number of pieces each side has left to place, and one more if it is player 2's turn.
+ * Since XOR undoes itself, GameBoard can keep its key up to date as pieces are placed, moved and removed instead of rehashing the whole board.
+ *
+ * The random numbers come from a fixed seed so a position always hashes to the same key, even between runs of the program.
+ * @author Michael Perez
+ *
+ */
+public final class Zobrist {
+	private final static long SEED = 0x4E4D4D4C4CL; //"NMMLL"
+	private final static long[][] PIECE = new long[2][BitBoard.POINTS];
+	private final static long[][] HAND = new long[2][16]; //hand counts fit in 4 bits on a bitboard
+	private final static long PLAYER2_TO_MOVE;
+
+	static {
+		Random random = new Random(SEED);
+		for (int side = 0; side < 2; side++){
+			for (int point = 0; point < BitBoard.POINTS; point++){
+				PIECE[side][point] = random.nextLong();
+			}
+			for (int count = 0; count < HAND[side].length; count++){
+				HAND[side][count] = random.nextLong();
+			}
+		}
+		PLAYER2_TO_MOVE = random.nextLong();
+	}
+
+	private Zobrist(){
+		//static methods only
+	}
+
+	/**
+	 * Gets the key of a piece on a point.
+	 * @param side BitBoard side the piece belongs to
+	 * @param point point index the piece is on
+	 * @return key to XOR in or out of a position key
+	 */
+	public static long piece(int side, int point){
+		return PIECE[side][point];
+	}
+
+	/**
+	 * Gets the part of a position key that depends on the hands and whose turn it is, which is not tracked incrementally.
+	 * @param player1InHand pieces player 1 has left to place
+	 * @param player2InHand pieces player 2 has left to place
+	 * @param side BitBoard side that is to move
+	 * @return key to XOR with the piece keys of a position
+	 */
+	public static long state(int player1InHand, int player2InHand, int side){
+		return HAND[0][player1InHand & 15] ^ HAND[1][player2InHand & 15] ^ ((side == BitBoard.SIDE_PLAYER2) ? PLAYER2_TO_MOVE : 0);
+	}
+
+	/**
+	 * Hashes a BitBoard state from scratch. This gives the same key as GameBoard.getZobristKey() for the same position.
+	 * @param state packed BitBoard state
+	 * @return Zobrist key of the position
+	 */
+	public static long hash(long state){
+		long key = 0;
+		for (int side = 0; side < 2; side++){
+			for (int pieces = BitBoard.occupancy(state, side); pieces != 0; pieces &= pieces - 1){
+				key ^= PIECE[side][Integer.numberOfTrailingZeros(pieces)];
+			}
+		}
+		return key ^ state(BitBoard.inHand(state, BitBoard.SIDE_PLAYER1), BitBoard.inHand(state, BitBoard.SIDE_PLAYER2), BitBoard.sideToMove(state));
+	}
+}